@@ -16,6 +16,7 @@ import net.orbyfied.hscsms.network.handler.HandlerNode;
 import net.orbyfied.hscsms.network.handler.NodeAction;
 import net.orbyfied.hscsms.network.handler.SocketNetworkHandler;
 import net.orbyfied.hscsms.security.AsymmetricEncryptionProfile;
+import net.orbyfied.hscsms.security.StreamingEncryptionProfile;
 import net.orbyfied.hscsms.security.SymmetricEncryptionProfile;
 import net.orbyfied.hscsms.server.ServerClient;
 import net.orbyfied.hscsms.service.Logging;
@@ -52,8 +53,8 @@ public class ClientMain {
 
     public final AsymmetricEncryptionProfile serverEncryptionProfile =
             ProtocolSpec.newAsymmetricEncryptionProfile();
-    private final SymmetricEncryptionProfile clientEncryptionProfile =
-            ProtocolSpec.newSymmetricEncryptionProfile();
+    private SymmetricEncryptionProfile clientEncryptionProfile;
+    private int protocolVersion;
 
     /**
      * The working directory.
@@ -86,12 +87,16 @@ public class ClientMain {
                     serverEncryptionProfile.withPublicKey(packet.getKey());
                     networkHandler.withEncryptionProfile(serverEncryptionProfile);
 
+                    // negotiate protocol version
+                    protocolVersion = ProtocolSpec.negotiateVersion(packet.getProtocolVersion());
+                    clientEncryptionProfile = ProtocolSpec.newSymmetricEncryptionProfile(protocolVersion, StreamingEncryptionProfile.Side.CLIENT);
+
                     // generate private key
                     clientEncryptionProfile.generateKeys();
                     
                     // send serverbound private key packet, encrypted
                     networkHandler.sendSyncEncrypted(
-                            new PacketServerboundClientKey(clientEncryptionProfile.getSecretKey()),
+                            new PacketServerboundClientKey(clientEncryptionProfile.getSecretKey(), protocolVersion),
                             serverEncryptionProfile
                     );
 
@@ -0,0 +1,51 @@
+package net.orbyfied.hscsms.benchmark;
+
+import net.orbyfied.hscsms.network.Packet;
+import net.orbyfied.hscsms.network.PacketType;
+
+/**
+ * Packet with a mix of fixed size fields,
+ * a string and a variable sized payload.
+ */
+public class BenchmarkPacket extends Packet {
+
+    public static final PacketType<BenchmarkPacket> TYPE =
+            new PacketType<>(BenchmarkPacket.class, "hscsms/benchmark/packet")
+                    .serializer((type, packet, stream) -> {
+                        stream.writeLong(packet.id);
+                        stream.writeUTF(packet.message);
+                        stream.writeInt(packet.data.length);
+                        stream.write(packet.data);
+                    })
+                    .deserializer((type, stream) -> {
+                        long id = stream.readLong();
+                        String message = stream.readUTF();
+                        byte[] data = new byte[stream.readInt()];
+                        stream.readFully(data);
+                        return new BenchmarkPacket(id, message, data);
+                    });
+
+    long id;
+    String message;
+    byte[] data;
+
+    public BenchmarkPacket(long id, String message, byte[] data) {
+        super(TYPE);
+        this.id      = id;
+        this.message = message;
+        this.data    = data;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+}
@@ -0,0 +1,121 @@
+package net.orbyfied.hscsms.benchmark;
+
+import net.orbyfied.hscsms.common.ProtocolSpec;
+import net.orbyfied.hscsms.security.EncryptionProfile;
+import net.orbyfied.hscsms.security.StreamingEncryptionProfile;
+import net.orbyfied.hscsms.util.data.ByteBufferInputStream;
+import net.orbyfied.hscsms.util.data.ByteBufferOutputStream;
+import net.orbyfied.hscsms.util.data.ByteBufferPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encrypts and decrypts payloads of different
+ * sizes through the encryption streams of the
+ * symmetric and asymmetric profiles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@SuppressWarnings("rawtypes")
+public class EncryptionBenchmark {
+
+    /**
+     * Creates a profile with generated keys.
+     * @param name One of aes-ecb, aes-gcm or rsa.
+     * @return The profile.
+     */
+    public static EncryptionProfile createProfile(String name) {
+        return switch (name) {
+            case "aes-ecb" -> ProtocolSpec.newSymmetricEncryptionProfile(ProtocolSpec.PROTOCOL_V1).generateKeys();
+            case "aes-gcm" -> ProtocolSpec.newSymmetricEncryptionProfile(ProtocolSpec.PROTOCOL_V2,
+                    StreamingEncryptionProfile.Side.CLIENT).generateKeys();
+            case "rsa"     -> ProtocolSpec.newAsymmetricEncryptionProfile().generateKeys();
+            default -> throw new IllegalArgumentException("unknown profile " + name);
+        };
+    }
+
+    /**
+     * Creates the profile decrypting the messages
+     * encrypted by the given profile. Streaming profiles
+     * only accept messages sent by the other side.
+     * @param profile The encrypting profile.
+     * @return The decrypting profile.
+     */
+    public static EncryptionProfile createPeer(EncryptionProfile profile) {
+        if (!(profile instanceof StreamingEncryptionProfile streaming))
+            return profile;
+        return ProtocolSpec.newSymmetricEncryptionProfile(ProtocolSpec.PROTOCOL_V2, StreamingEncryptionProfile.Side.SERVER)
+                .withKey("secret", streaming.getSecretKey());
+    }
+
+    /**
+     * A freshly encrypted message for every decryption,
+     * as streaming profiles reject replayed messages.
+     */
+    @State(Scope.Thread)
+    public static class Message {
+        // the encrypted data
+        ByteBuffer encrypted;
+
+        @Setup(Level.Invocation)
+        public void encrypt(EncryptionBenchmark benchmark) throws IOException {
+            ByteBufferOutputStream out = new ByteBufferOutputStream(ByteBufferPool.HEAP);
+            OutputStream stream = benchmark.profile.encryptingOutputStream(out);
+            stream.write(benchmark.plain);
+            stream.flush();
+            encrypted = out.buffer().flip();
+        }
+
+        @TearDown(Level.Invocation)
+        public void release() {
+            ByteBufferPool.HEAP.release(encrypted);
+        }
+    }
+
+    @Param({ "aes-ecb", "aes-gcm", "rsa" })
+    String profileName;
+
+    @Param({ "16", "1024", "16384" })
+    int size;
+
+    // the encrypting and decrypting profile
+    EncryptionProfile profile;
+    EncryptionProfile peer;
+    // the plain data
+    byte[] plain;
+
+    @Setup
+    public void setup() throws IOException {
+        profile = createProfile(profileName);
+        peer    = createPeer(profile);
+        plain = new byte[size];
+        new Random(42).nextBytes(plain);
+    }
+
+    @Benchmark
+    public int encrypt() throws IOException {
+        ByteBufferOutputStream out = new ByteBufferOutputStream(ByteBufferPool.HEAP);
+        try {
+            OutputStream stream = profile.encryptingOutputStream(out);
+            stream.write(plain);
+            stream.flush();
+            return out.buffer().position();
+        } finally {
+            out.release();
+        }
+    }
+
+    @Benchmark
+    public byte[] decrypt(Message message) throws IOException {
+        InputStream stream = peer.decryptingInputStream(new ByteBufferInputStream(message.encrypted));
+        return stream.readNBytes(size);
+    }
+
+}
@@ -0,0 +1,67 @@
+package net.orbyfied.hscsms.benchmark;
+
+import net.orbyfied.hscsms.network.Packet;
+import net.orbyfied.hscsms.network.PacketType;
+import net.orbyfied.hscsms.network.handler.ChainAction;
+import net.orbyfied.hscsms.network.handler.HandlerNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatches a packet through a handler tree where
+ * the handler is at the end of a chain of nodes, each
+ * level having siblings for other packet types.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HandlerDispatchBenchmark {
+
+    @Param({ "1", "8", "32" })
+    int depth;
+
+    @Param({ "1", "16" })
+    int width;
+
+    // type: chain of type mapped nodes
+    // predicate: chain of predicate nodes
+    @Param({ "type", "predicate" })
+    String mode;
+
+    // the root node
+    HandlerNode root;
+    // the packet
+    Packet packet;
+    // the amount of handled packets
+    long handled;
+
+    @Setup
+    public void setup() {
+        root   = new HandlerNode(null);
+        packet = new BenchmarkPacket(0, "", new byte[0]);
+
+        HandlerNode node = root;
+        for (int i = 0; i < depth; i++) {
+            // add siblings for other types
+            for (int j = 1; j < width; j++)
+                node.childForType(new PacketType<>(BenchmarkPacket.class, "hscsms/benchmark/other" + j));
+
+            // add next node in chain
+            node = mode.equals("type") ?
+                    node.childForType(BenchmarkPacket.TYPE) :
+                    node.childWhen((handler, node1, p) -> p.type() == BenchmarkPacket.TYPE);
+        }
+
+        node.withHandler((handler, node1, p) -> {
+            handled++;
+            return new HandlerNode.Result(ChainAction.CONTINUE);
+        });
+    }
+
+    @Benchmark
+    public HandlerNode.Result handle() {
+        return root.handle(null, packet);
+    }
+
+}
@@ -0,0 +1,114 @@
+package net.orbyfied.hscsms.benchmark;
+
+import net.orbyfied.hscsms.network.Packet;
+import net.orbyfied.hscsms.security.EncryptionProfile;
+import net.orbyfied.hscsms.util.data.ByteBufferInputStream;
+import net.orbyfied.hscsms.util.data.ByteBufferOutputStream;
+import net.orbyfied.hscsms.util.data.ByteBufferPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization round trips of a packet through
+ * its packet type, optionally encrypted. The bytewise
+ * path forces single byte calls into the encryption
+ * streams, to compare against the bulk path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@SuppressWarnings({ "rawtypes", "unchecked" })
+public class PacketCodecBenchmark {
+
+    /**
+     * A freshly encoded packet for every deserialization,
+     * as streaming profiles reject replayed messages.
+     */
+    @State(Scope.Thread)
+    public static class Message {
+        // the encoded data
+        ByteBufferOutputStream encoded;
+
+        @Setup(Level.Invocation)
+        public void serialize(PacketCodecBenchmark benchmark) throws Throwable {
+            encoded = new ByteBufferOutputStream(ByteBufferPool.HEAP);
+            benchmark.serialize(encoded);
+            encoded.buffer().flip();
+        }
+
+        @TearDown(Level.Invocation)
+        public void release() {
+            encoded.release();
+        }
+    }
+
+    @Param({ "none", "aes-ecb", "aes-gcm" })
+    String encryption;
+
+    @Param({ "bulk", "bytewise" })
+    String path;
+
+    @Param({ "16", "1024", "16384" })
+    int payloadSize;
+
+    // the encrypting and decrypting profile, null if unencrypted
+    EncryptionProfile profile;
+    EncryptionProfile peer;
+    // the packet
+    BenchmarkPacket packet;
+
+    @Setup
+    public void setup() throws Throwable {
+        if (!encryption.equals("none")) {
+            profile = EncryptionBenchmark.createProfile(encryption);
+            peer    = EncryptionBenchmark.createPeer(profile);
+        }
+
+        byte[] data = new byte[payloadSize];
+        new Random(42).nextBytes(data);
+        packet = new BenchmarkPacket(42L, "benchmark message", data);
+    }
+
+    private void serialize(ByteBufferOutputStream out) throws Throwable {
+        OutputStream stream = out;
+        if (profile != null) {
+            stream = profile.encryptingOutputStream(stream);
+            if (path.equals("bytewise"))
+                stream = Streams.bytewise(stream);
+        }
+
+        DataOutputStream dataStream = new DataOutputStream(stream);
+        BenchmarkPacket.TYPE.serializer().serialize(BenchmarkPacket.TYPE, packet, dataStream);
+        dataStream.flush();
+    }
+
+    @Benchmark
+    public int serialize() throws Throwable {
+        ByteBufferOutputStream out = new ByteBufferOutputStream(ByteBufferPool.HEAP);
+        try {
+            serialize(out);
+            return out.buffer().position();
+        } finally {
+            out.release();
+        }
+    }
+
+    @Benchmark
+    public Packet deserialize(Message message) throws Throwable {
+        InputStream stream = new ByteBufferInputStream(message.encoded.buffer());
+        if (peer != null) {
+            stream = peer.decryptingInputStream(stream);
+            if (path.equals("bytewise"))
+                stream = Streams.bytewise(stream);
+        }
+
+        return BenchmarkPacket.TYPE.deserializer().deserialize(BenchmarkPacket.TYPE, new DataInputStream(stream));
+    }
+
+}
@@ -0,0 +1,106 @@
+package net.orbyfied.hscsms.benchmark;
+
+import net.orbyfied.hscsms.core.resource.ServerResourceHandle;
+import net.orbyfied.hscsms.core.resource.ServerResourceManager;
+import net.orbyfied.hscsms.core.resource.impl.ResourceGCService;
+import net.orbyfied.hscsms.core.resource.impl.ResourceWriteBehindService;
+import net.orbyfied.hscsms.server.Server;
+import net.orbyfied.hscsms.server.resource.User;
+import net.orbyfied.hscsms.util.Values;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load and unload cycles of resources through the
+ * resource manager, backed by an in-memory database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ResourceManagerBenchmark {
+
+    @Param({ "1000", "100000" })
+    int resources;
+
+    // the server and resource manager
+    Server server;
+    ServerResourceManager manager;
+
+    // the stored users
+    UUID[] uuids;
+    String[] usernames;
+
+    @Setup
+    public void setup() {
+        server = new Server();
+        server.configuration.put("database", new Values().setRaw("brand", "memory"));
+        server.setup();
+
+        manager = server.resourceManager();
+        manager.registerType(User.TYPE);
+
+        // create and store users
+        uuids     = new UUID[resources];
+        usernames = new String[resources];
+        for (int i = 0; i < resources; i++) {
+            User user = manager.createResourceUnwrapped(User.TYPE);
+            user.setUsername("user" + i).setPasswordLocal("password" + i);
+            manager.saveResource(user);
+            manager.unloadResource(user);
+
+            uuids[i]     = user.universalID();
+            usernames[i] = "user" + i;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.withoutService(ResourceGCService.class);
+        manager.withoutService(ResourceWriteBehindService.class);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public User loadUnload(Cursor cursor) {
+        UUID uuid = uuids[cursor.next++ % resources];
+        User user = manager.loadResourceUnwrapped(uuid);
+        manager.unloadResource(user);
+        return user;
+    }
+
+    @Benchmark
+    public User loadHandleRelease(Cursor cursor) {
+        UUID uuid = uuids[cursor.next++ % resources];
+        ServerResourceHandle<User> handle = manager.loadResource(uuid);
+        User user = handle.getOrNull();
+        handle.release();
+        return user;
+    }
+
+    @Benchmark
+    public User loadFilteredUnload(Cursor cursor) {
+        String username = usernames[cursor.next++ % resources];
+        User user = manager.loadDatabaseResourceFiltered(User.TYPE, new Values().setRaw("username", username));
+        manager.unloadResource(user);
+        return user;
+    }
+
+    @Benchmark
+    public User loadFilteredLoaded(Cursor cursor) {
+        String username = usernames[cursor.next++ % resources];
+        return manager.loadDatabaseResourceFiltered(User.TYPE, new Values().setRaw("username", username));
+    }
+
+    @Benchmark
+    public User loadFilteredUnknown(Cursor cursor) {
+        String username = "unknown" + (cursor.next++ % resources);
+        return manager.loadDatabaseResourceFiltered(User.TYPE, new Values().setRaw("username", username));
+    }
+
+}
@@ -0,0 +1,38 @@
+package net.orbyfied.hscsms.benchmark;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Stream adapters which force all data through the
+ * single byte methods of the wrapped stream, like
+ * the encryption streams worked before bulk support.
+ */
+public class Streams {
+
+    public static OutputStream bytewise(OutputStream out) {
+        // FilterOutputStream writes arrays byte by byte
+        return new FilterOutputStream(out);
+    }
+
+    public static InputStream bytewise(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = 0;
+                for (; n < len; n++) {
+                    int c = in.read();
+                    if (c == -1)
+                        break;
+                    b[off + n] = (byte) c;
+                }
+
+                return n == 0 && len > 0 ? -1 : n;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,54 @@
+package net.orbyfied.hscsms.benchmark;
+
+import net.orbyfied.hscsms.util.Values;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dotted path lookups in nested values,
+ * like configuration reads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ValuesBenchmark {
+
+    @Param({ "1", "4", "8" })
+    int depth;
+
+    // the values and paths
+    Values values;
+    String path;
+    String missingPath;
+
+    @Setup
+    public void setup() {
+        values = new Values();
+
+        StringBuilder b = new StringBuilder();
+        Values curr = values;
+        for (int i = 0; i < depth - 1; i++) {
+            Values next = new Values();
+            curr.put("level" + i, next);
+            curr.put("other" + i, i);
+            curr = next;
+            b.append("level").append(i).append('.');
+        }
+
+        curr.put("value", "hello");
+        path        = b + "value";
+        missingPath = b + "missing";
+    }
+
+    @Benchmark
+    public Object get() {
+        return values.get(path);
+    }
+
+    @Benchmark
+    public Object getOrDefaultMissing() {
+        return values.getOrDefault(missingPath, "default");
+    }
+
+}
@@ -7,6 +7,7 @@ import net.orbyfied.hscsms.common.protocol.handshake.PacketServerboundClientKey;
 import net.orbyfied.hscsms.common.protocol.handshake.PacketUnboundHandshakeOk;
 import net.orbyfied.hscsms.network.NetworkManager;
 import net.orbyfied.hscsms.security.AsymmetricEncryptionProfile;
+import net.orbyfied.hscsms.security.StreamingEncryptionProfile;
 import net.orbyfied.hscsms.security.SymmetricEncryptionProfile;
 
 public class ProtocolSpec {
@@ -30,6 +31,41 @@ public class ProtocolSpec {
 
     /* ------------------- */
 
+    /**
+     * Protocol version 1: packets are encrypted
+     * block by block using AES/ECB.
+     */
+    public static final int PROTOCOL_V1 = 1;
+
+    /**
+     * Protocol version 2: every packet is encrypted
+     * in a single pass using authenticated AES/GCM.
+     */
+    public static final int PROTOCOL_V2 = 2;
+
+    /**
+     * The latest protocol version supported.
+     */
+    public static final int PROTOCOL_VERSION = PROTOCOL_V2;
+
+    /**
+     * Negotiates the protocol version to use
+     * with a remote supporting up to the given
+     * version. This is the highest version
+     * supported by both ends.
+     * @param remoteVersion The latest version supported by the remote.
+     * @return The version to use.
+     * @throws IllegalArgumentException If no version is supported by both.
+     */
+    public static int negotiateVersion(int remoteVersion) {
+        int version = Math.min(PROTOCOL_VERSION, remoteVersion);
+        if (version < PROTOCOL_V1)
+            throw new IllegalArgumentException("unsupported protocol version " + remoteVersion);
+        return version;
+    }
+
+    /* ------------------- */
+
     public static final int G_KEY_LENGTH = 1024;
     public static final int S_KEY_LENGTH = 128;
 
@@ -38,7 +74,29 @@ public class ProtocolSpec {
     }
 
     public static SymmetricEncryptionProfile newSymmetricEncryptionProfile() {
-        return new SymmetricEncryptionProfile("AES", "ECB", "PKCS5Padding", "AES", S_KEY_LENGTH);
+        return newSymmetricEncryptionProfile(PROTOCOL_VERSION);
+    }
+
+    public static SymmetricEncryptionProfile newSymmetricEncryptionProfile(int version) {
+        return switch (version) {
+            case PROTOCOL_V1 -> new SymmetricEncryptionProfile("AES", "ECB", "PKCS5Padding", "AES", S_KEY_LENGTH);
+            case PROTOCOL_V2 -> new StreamingEncryptionProfile("AES", "GCM", "NoPadding", "AES", S_KEY_LENGTH);
+            default -> throw new IllegalArgumentException("unsupported protocol version " + version);
+        };
+    }
+
+    /**
+     * Creates the symmetric encryption profile of
+     * the protocol version for one side of a connection.
+     * @param version The protocol version.
+     * @param side The side it is used on.
+     * @return The profile.
+     */
+    public static SymmetricEncryptionProfile newSymmetricEncryptionProfile(int version, StreamingEncryptionProfile.Side side) {
+        SymmetricEncryptionProfile profile = newSymmetricEncryptionProfile(version);
+        if (profile instanceof StreamingEncryptionProfile streaming)
+            streaming.withSide(side);
+        return profile;
     }
 
     public static final SymmetricEncryptionProfile  EP_SYMMETRIC  = newSymmetricEncryptionProfile();
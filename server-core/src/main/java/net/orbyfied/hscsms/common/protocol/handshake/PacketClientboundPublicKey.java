@@ -16,23 +16,33 @@ public class PacketClientboundPublicKey extends Packet {
                 // encode key and write
                 String key = EP_ASYMMETRIC.encodeKeyToBase64(packet.key);
                 stream.writeUTF(key);
+                stream.writeInt(packet.protocolVersion);
             })
             .deserializer((type, stream) -> {
                 // read and decode key
                 String keyStr = stream.readUTF();
                 PublicKey key = EP_ASYMMETRIC.decodeKeyFromBase64(PublicKey.class, keyStr);
-                return new PacketClientboundPublicKey(key);
+                int protocolVersion = stream.readInt();
+                return new PacketClientboundPublicKey(key, protocolVersion);
             });
 
     PublicKey key;
+    // the latest protocol version
+    // supported by the server
+    int protocolVersion;
 
-    public PacketClientboundPublicKey(PublicKey key) {
+    public PacketClientboundPublicKey(PublicKey key, int protocolVersion) {
         super(TYPE);
         this.key = key;
+        this.protocolVersion = protocolVersion;
     }
 
     public PublicKey getKey() {
         return key;
     }
 
+    public int getProtocolVersion() {
+        return protocolVersion;
+    }
+
 }
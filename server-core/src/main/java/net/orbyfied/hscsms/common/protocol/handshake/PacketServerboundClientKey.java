@@ -16,23 +16,32 @@ public class PacketServerboundClientKey extends Packet {
                         // encode key and write
                         String key = EP_SYMMETRIC.encodeKeyToBase64(packet.getKey());
                         stream.writeUTF(key);
+                        stream.writeInt(packet.protocolVersion);
                     })
                     .deserializer((type, stream) -> {
                         // read and decode key
                         String keyStr = stream.readUTF();
                         SecretKey key = EP_SYMMETRIC.decodeKeyFromBase64(SecretKey.class, keyStr);
-                        return new PacketServerboundClientKey(key);
+                        int protocolVersion = stream.readInt();
+                        return new PacketServerboundClientKey(key, protocolVersion);
                     });
 
     SecretKey key;
+    // the protocol version chosen by the client
+    int protocolVersion;
 
-    public PacketServerboundClientKey(SecretKey key) {
+    public PacketServerboundClientKey(SecretKey key, int protocolVersion) {
         super(TYPE);
         this.key = key;
+        this.protocolVersion = protocolVersion;
     }
 
     public SecretKey getKey() {
         return key;
     }
 
+    public int getProtocolVersion() {
+        return protocolVersion;
+    }
+
 }
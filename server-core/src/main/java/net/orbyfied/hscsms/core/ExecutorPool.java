@@ -0,0 +1,187 @@
+package net.orbyfied.hscsms.core;
+
+import net.orbyfied.hscsms.util.Values;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A named service executing tasks on a bounded pool
+ * of daemon threads. When the queue is full, further
+ * tasks are handled by the rejection policy. Tasks are
+ * never dropped silently, tasks submitted after shutdown
+ * are rejected with an exception. The pool
+ * is created on first use, so it can be configured
+ * before that.
+ */
+public class ExecutorPool extends Service implements Executor {
+
+    /**
+     * What is done with tasks submitted
+     * while the queue is full.
+     */
+    public enum RejectionPolicy {
+        /** The submitting thread runs the task. */
+        CALLER_RUNS,
+        /** A {@link RejectedExecutionException} is thrown. */
+        ABORT;
+
+        public static RejectionPolicy of(String name) {
+            return valueOf(name.toUpperCase().replace('-', '_'));
+        }
+    }
+
+    // the amount of threads
+    int threads;
+    // the maximum amount of queued tasks
+    int queueSize = 10000;
+    // the rejection policy
+    RejectionPolicy rejectionPolicy = RejectionPolicy.CALLER_RUNS;
+
+    // the pool, or null if not created yet
+    volatile ThreadPoolExecutor pool;
+
+    // the metrics
+    final LongAdder submitted = new LongAdder();
+    final LongAdder completed = new LongAdder();
+    final LongAdder rejected  = new LongAdder();
+
+    public ExecutorPool(ServiceManager manager,
+                        ServiceHolder holder,
+                        String name,
+                        int threads) {
+        super(manager, holder, name);
+        this.threads = threads;
+    }
+
+    /**
+     * Configures this pool from the values, recreating
+     * it if it has already been used. Tasks queued in
+     * the previous pool are still executed.
+     * @param config The configuration section.
+     * @return This.
+     */
+    public synchronized ExecutorPool configure(Values config) {
+        if (config == null)
+            return this;
+        int t = config.getOrDefault("threads", 0);
+        threads         = t > 0 ? t : threads;
+        queueSize       = Math.max(1, config.getOrDefault("queue-size", queueSize));
+        rejectionPolicy = RejectionPolicy.of(config.getOrDefault("rejection", rejectionPolicy.name()));
+
+        // replace the pool
+        ThreadPoolExecutor old = pool;
+        if (old != null) {
+            pool = createPool();
+            old.shutdown();
+        }
+
+        return this;
+    }
+
+    // creates the pool with the current configuration
+    private ThreadPoolExecutor createPool() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread thread = new Thread(r, name + "-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        RejectedExecutionHandler handler = switch (rejectionPolicy) {
+            case CALLER_RUNS -> new ThreadPoolExecutor.CallerRunsPolicy();
+            case ABORT       -> new ThreadPoolExecutor.AbortPolicy();
+        };
+
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), factory, (r, executor) -> {
+            rejected.increment();
+            // the caller runs policy would drop the
+            // task silently, so it never completes
+            if (executor.isShutdown())
+                throw new RejectedExecutionException("Executor " + name + " has been shut down");
+            handler.rejectedExecution(r, executor);
+        });
+    }
+
+    // get or create the pool
+    private ThreadPoolExecutor pool() {
+        ThreadPoolExecutor p;
+        if ((p = pool) != null)
+            return p;
+        synchronized (this) {
+            if (pool == null)
+                pool = createPool();
+            return pool;
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        submitted.increment();
+        pool().execute(() -> {
+            try {
+                command.run();
+            } finally {
+                completed.increment();
+            }
+        });
+    }
+
+    /**
+     * Stops accepting tasks and waits for
+     * the queued tasks to be executed.
+     * @param timeout The maximum time to wait in milliseconds.
+     * @return If all tasks were executed in time.
+     */
+    public boolean shutdown(long timeout) {
+        ThreadPoolExecutor p = pool;
+        if (p == null)
+            return true;
+        p.shutdown();
+        try {
+            return p.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /* ---- Metrics ---- */
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    public int getQueuedCount() {
+        ThreadPoolExecutor p = pool;
+        return p != null ? p.getQueue().size() : 0;
+    }
+
+    public int getActiveCount() {
+        ThreadPoolExecutor p = pool;
+        return p != null ? p.getActiveCount() : 0;
+    }
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+}
@@ -8,6 +8,10 @@ import java.util.function.Function;
 
 public class ServiceManager implements ServiceHolder {
 
+    // the names of the executor services
+    public static final String IO_EXECUTOR  = "io-executor";
+    public static final String CPU_EXECUTOR = "cpu-executor";
+
     // services
     final List<Service> services = new ArrayList<>();
     final Map<String, Service> serviceMap = new HashMap<>();
@@ -17,6 +21,26 @@ public class ServiceManager implements ServiceHolder {
         return this;
     }
 
+    /**
+     * Get or create the executor for blocking work,
+     * like database queries and network writes.
+     * @return The executor service.
+     */
+    public synchronized ExecutorPool ioExecutor() {
+        return requireService(ExecutorPool.class, IO_EXECUTOR, holder -> new ExecutorPool(this, holder, IO_EXECUTOR,
+                Math.max(8, Runtime.getRuntime().availableProcessors() * 2)));
+    }
+
+    /**
+     * Get or create the executor for non-blocking,
+     * computational work.
+     * @return The executor service.
+     */
+    public synchronized ExecutorPool cpuExecutor() {
+        return requireService(ExecutorPool.class, CPU_EXECUTOR, holder -> new ExecutorPool(this, holder, CPU_EXECUTOR,
+                Runtime.getRuntime().availableProcessors()));
+    }
+
     private <T> T reqType(T o, Class<?> t) {
         if (o == null || !t.isAssignableFrom(o.getClass()))
             throw new IllegalArgumentException("expected service of type " + t.getName());
@@ -0,0 +1,182 @@
+package net.orbyfied.hscsms.core.resource;
+
+import com.mongodb.async.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import net.orbyfied.hscsms.db.DatabaseItem;
+import net.orbyfied.hscsms.db.DatabaseType;
+import net.orbyfied.hscsms.db.QueryPool;
+import net.orbyfied.hscsms.db.impl.MongoAsyncDatabase;
+import net.orbyfied.hscsms.db.impl.MongoAsyncDatabaseItem;
+import net.orbyfied.hscsms.service.Logging;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static net.orbyfied.hscsms.db.impl.MongoAsyncDatabase.callback;
+
+/**
+ * The resource queries for the asynchronous MongoDB
+ * driver, mirroring the synchronous ones defined by
+ * the resource manager. They complete on the callbacks
+ * of the driver without blocking a thread.
+ */
+final class MongoAsyncResourceQueries {
+
+    private MongoAsyncResourceQueries() { }
+
+    static void load(ServerResourceManager manager, QueryPool pool) {
+
+        pool.putAsyncQuery("find_resource_uuid", DatabaseType.MONGO_DB_ASYNC, (query, database, values) -> {
+            // get collection
+            MongoCollection<Document> collection = collection(manager, database);
+            UUID uuid = values.get("uuid");
+            CompletableFuture<Document> future = new CompletableFuture<>();
+            collection.find(Filters.eq("uuid", uuid))
+                    .projection(Projections.excludeId()).first(callback(future));
+            return future.thenApply(doc -> doc != null ?
+                    new MongoAsyncDatabaseItem(database, "uuid", collection, uuid, doc) : null);
+        });
+
+        pool.putAsyncQuery("find_resources_uuids", DatabaseType.MONGO_DB_ASYNC, (query, database, values) -> {
+            // get collection
+            MongoCollection<Document> collection = collection(manager, database);
+            List<UUID> uuids = values.getRaw("uuids");
+
+            // fetch all documents at once
+            CompletableFuture<List<Document>> future = new CompletableFuture<>();
+            collection.find(Filters.in("uuid", uuids)).projection(Projections.excludeId())
+                    .into(new ArrayList<>(uuids.size()), callback(future));
+            return future.thenApply(docs -> {
+                List<DatabaseItem> items = new ArrayList<>(docs.size());
+                for (Document doc : docs)
+                    items.add(new MongoAsyncDatabaseItem(database, "uuid", collection, doc.get("uuid", UUID.class), doc));
+                return items;
+            });
+        });
+
+        pool.putAsyncQuery("find_resource_local", DatabaseType.MONGO_DB_ASYNC, (query, database, values) -> {
+            // get collection
+            MongoCollection<Document> collection = collection(manager, database);
+            CompletableFuture<Document> future = new CompletableFuture<>();
+            collection.find(
+                    Filters.and(Filters.eq("localId", values.get("localId")),
+                            Filters.eq("type", values.get("typeHash")))
+            ).projection(Projections.excludeId()).first(callback(future));
+            return future.thenApply(doc -> doc != null ?
+                    new MongoAsyncDatabaseItem(database, "uuid", collection, doc.get("uuid", UUID.class), doc) : null);
+        });
+
+        pool.putAsyncQuery("find_resource_filter", DatabaseType.MONGO_DB_ASYNC, (query, database, values) -> {
+            // get collection
+            MongoCollection<Document> collection = collection(manager, database);
+            CompletableFuture<Document> future = new CompletableFuture<>();
+            collection.find(
+                    Filters.and(Filters.eq("type", values.get("typeHash")),
+                            ServerResourceManager.mongoToFilterEq(values.get("filter")))
+            ).projection(Projections.excludeId()).first(callback(future));
+            return future.thenApply(doc -> doc != null ?
+                    new MongoAsyncDatabaseItem(database, "uuid", collection, doc.get("uuid", UUID.class), doc) : null);
+        });
+
+        pool.putAsyncQuery("create_get_resource_uuid", DatabaseType.MONGO_DB_ASYNC, (query, database, values) -> {
+            // get collection
+            MongoCollection<Document> collection = collection(manager, database);
+
+            // create document
+            Document document = new Document();
+            UUID uuid = values.getRaw("uuid");
+            document.put("uuid", uuid);
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            collection.insertOne(document, callback(future));
+
+            // create database item
+            return future.thenApply(v -> new MongoAsyncDatabaseItem(database, "uuid", collection, uuid, document));
+        });
+
+        pool.putAsyncQuery("ref_resource_uuid", DatabaseType.MONGO_DB_ASYNC, (query, database, values) -> {
+            // reference the document without fetching it
+            MongoCollection<Document> collection = collection(manager, database);
+            return CompletableFuture.completedFuture(
+                    new MongoAsyncDatabaseItem(database, "uuid", collection, values.getRaw("uuid")));
+        });
+
+        pool.putAsyncQuery("push_resources_bulk", DatabaseType.MONGO_DB_ASYNC, (query, database, values) -> {
+            // get collection
+            MongoCollection<Document> collection = collection(manager, database);
+            List<DatabaseItem> items = values.getRaw("items");
+
+            // collect upserts of changed items
+            List<WriteModel<Document>> writes   = new ArrayList<>(items.size());
+            List<MongoAsyncDatabaseItem> written = new ArrayList<>(items.size());
+            UpdateOptions options = new UpdateOptions().upsert(true);
+            for (DatabaseItem item : items) {
+                MongoAsyncDatabaseItem mongoItem = (MongoAsyncDatabaseItem) item;
+                Bson update = mongoItem.createUpdate();
+                if (update != null) {
+                    writes.add(new UpdateOneModel<>(mongoItem.createFilter(), update, options));
+                    written.add(mongoItem);
+                }
+            }
+
+            if (writes.isEmpty())
+                return CompletableFuture.completedFuture(0);
+
+            // execute in one round trip
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            collection.bulkWrite(writes, new BulkWriteOptions().ordered(false), callback(future));
+            return future.thenApply(result -> {
+                for (MongoAsyncDatabaseItem item : written)
+                    item.commitChanges();
+                return writes.size();
+            });
+        });
+
+        pool.putAsyncQuery("ensure_resource_indexes", DatabaseType.MONGO_DB_ASYNC, (query, database, values) -> {
+            // get collection
+            MongoCollection<Document> collection = collection(manager, database);
+            List<IndexModel> indexes = ServerResourceManager.mongoCreateIndexModels(values.getRaw("base"), values.getRaw("types"));
+
+            // create all at once, one failing
+            // index does not prevent the others
+            CompletableFuture<?>[] futures = new CompletableFuture[indexes.size()];
+            for (int i = 0; i < futures.length; i++) {
+                IndexModel index = indexes.get(i);
+                CompletableFuture<String> future = new CompletableFuture<>();
+                collection.createIndex(index.getKeys(), index.getOptions(), callback(future));
+                futures[i] = future.handle((name, t) -> {
+                    if (t == null)
+                        return 1;
+                    ServerResourceManager.LOGGER.err("Failed to create index " + index.getOptions().getName() +
+                            " on " + manager.getCollectionName());
+                    t.printStackTrace(Logging.ERR);
+                    return 0;
+                });
+            }
+
+            return CompletableFuture.allOf(futures).thenApply(v -> {
+                int created = 0;
+                for (CompletableFuture<?> future : futures)
+                    created += (Integer) future.join();
+                return created;
+            });
+        });
+
+    }
+
+    // get the resources collection
+    private static MongoCollection<Document> collection(ServerResourceManager manager,
+                                                        MongoAsyncDatabase database) {
+        return database.getDatabaseClient().getCollection(manager.getCollectionName());
+    }
+
+}
@@ -0,0 +1,29 @@
+package net.orbyfied.hscsms.core.resource;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates the IDs of new resources. The
+ * generated IDs should be unique across all
+ * servers sharing a database.
+ */
+public interface ResourceIdGenerator {
+
+    /**
+     * Generates a new unique ID.
+     * @return The ID.
+     */
+    long nextId();
+
+    /**
+     * Generates a new unique ID as the most
+     * significant bits of a UUID, the least
+     * significant bits are random.
+     * @return The UUID.
+     */
+    default UUID nextUUID() {
+        return new UUID(nextId(), ThreadLocalRandom.current().nextLong());
+    }
+
+}
@@ -0,0 +1,270 @@
+package net.orbyfied.hscsms.core.resource;
+
+import net.orbyfied.hscsms.util.Values;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * The secondary indexes of the loaded resources by the
+ * lookup fields declared by their types, so resources
+ * can be found by a field value without a database query
+ * when loaded. Values which were not found in the database
+ * are remembered for a short time, so repeated lookups
+ * of them don't query the database either.
+ * @see ServerResourceType#withLookup(String, Function)
+ */
+public class ResourceLookups {
+
+    /**
+     * The index of the loaded resources
+     * of a type by the value of a field.
+     */
+    public class Index {
+
+        // the field
+        final ServerResourceType.LookupField<ServerResource> field;
+
+        // the universal IDs by value
+        final ConcurrentHashMap<Object, UUID> byValue = new ConcurrentHashMap<>();
+        // the values by universal ID
+        final ConcurrentHashMap<UUID, Object> valueByUUID = new ConcurrentHashMap<>();
+        // the values not found, with the time they expire
+        final ConcurrentHashMap<Object, Long> absent = new ConcurrentHashMap<>();
+
+        Index(ServerResourceType.LookupField<ServerResource> field) {
+            this.field = field;
+        }
+
+        public String getFieldName() {
+            return field.name();
+        }
+
+        public int size() {
+            return byValue.size();
+        }
+
+        public int getAbsentSize() {
+            return absent.size();
+        }
+
+        /**
+         * Get the loaded resource with the value.
+         * @param value The value.
+         * @return The resource or null if not loaded.
+         */
+        public ServerResource get(Object value) {
+            UUID uuid = byValue.get(value);
+            if (uuid == null) {
+                misses.increment();
+                return null;
+            }
+
+            // check it is still loaded
+            // and has the value
+            ServerResource resource = registry.get(uuid);
+            if (resource == null || !value.equals(field.getter().apply(resource))) {
+                byValue.remove(value, uuid);
+                misses.increment();
+                return null;
+            }
+
+            hits.increment();
+            return resource;
+        }
+
+        /**
+         * Check if the value was recently not
+         * found in the database.
+         * @param value The value.
+         * @return If it is known to be absent.
+         */
+        public boolean isAbsent(Object value) {
+            Long expiry = absent.get(value);
+            if (expiry == null)
+                return false;
+            if (System.nanoTime() - expiry > 0) {
+                absent.remove(value, expiry);
+                return false;
+            }
+
+            absentHits.increment();
+            return true;
+        }
+
+        /**
+         * Remembers that the value was not found
+         * in the database, unless disabled or
+         * a loaded resource has the value.
+         * @param value The value.
+         */
+        public synchronized void putAbsent(Object value) {
+            if (absentTtl <= 0 || value == null || byValue.containsKey(value))
+                return;
+
+            // make room by removing expired values,
+            // don't remember it if still full
+            long now = System.nanoTime();
+            if (absent.size() >= maxAbsent) {
+                absent.values().removeIf(expiry -> now - expiry > 0);
+                if (absent.size() >= maxAbsent)
+                    return;
+            }
+
+            absent.put(value, now + absentTtl);
+        }
+
+        // indexes the current value of the resource
+        synchronized void update(ServerResource resource) {
+            UUID uuid    = resource.universalID();
+            Object value = field.getter().apply(resource);
+            Object old   = value != null ? valueByUUID.put(uuid, value) : valueByUUID.remove(uuid);
+            if (old != null && !old.equals(value))
+                byValue.remove(old, uuid);
+            if (value != null) {
+                byValue.put(value, uuid);
+                absent.remove(value);
+            }
+        }
+
+        // removes the resource from the index
+        synchronized void remove(ServerResource resource) {
+            UUID uuid = resource.universalID();
+            Object old = valueByUUID.remove(uuid);
+            if (old != null)
+                byValue.remove(old, uuid);
+        }
+
+    }
+
+    // an empty array of indexes
+    static final Index[] NO_INDEXES = new Index[0];
+
+    ////////////////////////////////////
+
+    // the registry of loaded resources
+    final ResourceRegistry registry;
+
+    // the indexes by type
+    final ConcurrentHashMap<ServerResourceType<?>, Index[]> indexes = new ConcurrentHashMap<>();
+
+    // the time in nanoseconds values which were
+    // not found are remembered, 0 to disable
+    volatile long absentTtl = TimeUnit.SECONDS.toNanos(5);
+    // the maximum amount of values remembered
+    // as not found per index
+    volatile int maxAbsent = 10000;
+
+    // the metrics
+    final LongAdder hits       = new LongAdder();
+    final LongAdder absentHits = new LongAdder();
+    final LongAdder misses     = new LongAdder();
+
+    public ResourceLookups(ResourceRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Configures the lookups from the values.
+     * @param config The configuration section.
+     * @return This.
+     */
+    public ResourceLookups configure(Values config) {
+        if (config == null)
+            return this;
+        absentTtl = TimeUnit.MILLISECONDS.toNanos(Math.max(0, config.getOrDefault("negative-ttl", 5000)));
+        maxAbsent = Math.max(0, config.getOrDefault("max-negative", maxAbsent));
+        if (absentTtl == 0)
+            for (Index[] ofType : indexes.values())
+                for (Index index : ofType)
+                    index.absent.clear();
+        return this;
+    }
+
+    // get or create the indexes of the type
+    @SuppressWarnings("unchecked")
+    private Index[] indexesOf(ServerResourceType<?> type) {
+        Index[] ofType;
+        if ((ofType = indexes.get(type)) != null)
+            return ofType;
+        return indexes.computeIfAbsent(type, t -> {
+            if (t.getLookupFields().isEmpty())
+                return NO_INDEXES;
+            return t.getLookupFields().stream()
+                    .map(field -> new Index((ServerResourceType.LookupField<ServerResource>) field))
+                    .toArray(Index[]::new);
+        });
+    }
+
+    /**
+     * Get the index of the type by the field.
+     * @param type The resource type.
+     * @param field The field name.
+     * @return The index or null if the field
+     *         is not a lookup field of the type.
+     */
+    public Index index(ServerResourceType<?> type, Object field) {
+        for (Index index : indexesOf(type))
+            if (index.field.name().equals(field))
+                return index;
+        return null;
+    }
+
+    /**
+     * Get the index able to serve the equality filter,
+     * which is the case if it only filters by one
+     * lookup field of the type.
+     * @param type The resource type.
+     * @param filter The equality filter.
+     * @return The index or null if there is none.
+     */
+    public Index index(ServerResourceType<?> type, Values filter) {
+        if (filter.getSize() != 1)
+            return null;
+        Index[] ofType = indexesOf(type);
+        if (ofType.length == 0)
+            return null;
+        Map.Entry<Object, Object> entry = filter.entrySet().iterator().next();
+        return entry.getValue() != null ? index(type, entry.getKey()) : null;
+    }
+
+    /**
+     * Indexes the current values of the resource,
+     * which are no longer remembered as not found.
+     * Called when it is loaded, created or saved.
+     * @param resource The resource.
+     */
+    public void update(ServerResource resource) {
+        for (Index index : indexesOf(resource.type()))
+            index.update(resource);
+    }
+
+    /**
+     * Removes the resource from the indexes.
+     * Called when it is unloaded.
+     * @param resource The resource.
+     */
+    public void remove(ServerResource resource) {
+        for (Index index : indexesOf(resource.type()))
+            index.remove(resource);
+    }
+
+    /* ---- Metrics ---- */
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getAbsentHits() {
+        return absentHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+}
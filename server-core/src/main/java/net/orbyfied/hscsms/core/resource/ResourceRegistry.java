@@ -0,0 +1,497 @@
+package net.orbyfied.hscsms.core.resource;
+
+import net.orbyfied.hscsms.util.data.LongPair2ObjectMap;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The registry of loaded resources, indexed by
+ * universal ID and by type and local ID. The indexes
+ * are keyed by the raw bits of the IDs, so reads are
+ * lock free and don't allocate, writes to both indexes are done under a
+ * lock striped by universal ID so they stay consistent.
+ * Concurrent loads of the same resource are coalesced
+ * into one load, whose result is shared. Removed
+ * resources are kept softly referenced, so they can
+ * be restored without a database query until the
+ * JVM reclaims them under memory pressure.
+ */
+public class ResourceRegistry {
+
+    // a load in progress, completed by the thread
+    // which started it, or by the database if the
+    // owner is null
+    static class Load extends CompletableFuture<ServerResource> {
+        final Thread owner;
+
+        Load(Thread owner) {
+            this.owner = owner;
+        }
+    }
+
+    // a softly referenced removed resource
+    static class SoftEntry extends SoftReference<ServerResource> {
+        final UUID uuid;
+
+        SoftEntry(ServerResource resource, ReferenceQueue<ServerResource> queue) {
+            super(resource, queue);
+            this.uuid = resource.universalID();
+        }
+    }
+
+    // the amount of lock stripes, power of two
+    static final int STRIPES = 64;
+
+    // the loaded resources
+    final LongPair2ObjectMap<ServerResource> byUUID = new LongPair2ObjectMap<>();
+    final LongPair2ObjectMap<ServerResource> byLID  = new LongPair2ObjectMap<>();
+
+    // the write locks
+    final Object[] locks = new Object[STRIPES];
+
+    // the loads in progress
+    final ConcurrentHashMap<UUID, Load> loadsByUUID = new ConcurrentHashMap<>();
+    final ConcurrentHashMap<UUID, Load> loadsByLID  = new ConcurrentHashMap<>();
+
+    // if removed resources are kept softly
+    volatile boolean softCache = true;
+    // the removed resources
+    final ConcurrentHashMap<UUID, SoftEntry> soft = new ConcurrentHashMap<>();
+    // the queue of reclaimed soft entries
+    final ReferenceQueue<ServerResource> reclaimed = new ReferenceQueue<>();
+
+    // the secondary indexes
+    final ResourceLookups lookups = new ResourceLookups(this);
+
+    // the metrics
+    final LongAdder handleHits = new LongAdder();
+    final LongAdder hits       = new LongAdder();
+    final LongAdder softHits   = new LongAdder();
+    final LongAdder misses     = new LongAdder();
+
+    public ResourceRegistry() {
+        for (int i = 0; i < STRIPES; i++)
+            locks[i] = new Object();
+    }
+
+    // get the lock for the universal ID
+    private Object lockFor(UUID uuid) {
+        int h = uuid.hashCode();
+        return locks[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    // the most significant bits of the local key
+    private static long localMost(ServerResource resource) {
+        return ServerResourceManager.getMemoryMapLocalKeyMost(resource.type().idHash, resource.localID());
+    }
+
+    /**
+     * Sets if removed resources are kept
+     * softly referenced to be restored.
+     * @param softCache If enabled.
+     * @return This.
+     */
+    public ResourceRegistry setSoftCache(boolean softCache) {
+        this.softCache = softCache;
+        if (!softCache)
+            soft.clear();
+        return this;
+    }
+
+    public boolean isSoftCache() {
+        return softCache;
+    }
+
+    public ResourceLookups lookups() {
+        return lookups;
+    }
+
+    public int size() {
+        return byUUID.size();
+    }
+
+    public int getSoftSize() {
+        expunge();
+        return soft.size();
+    }
+
+    /* ---- Metrics ---- */
+
+    /**
+     * Counts a resource served by the strong
+     * reference of an acquired handle.
+     */
+    public void countHandleHit() {
+        handleHits.increment();
+    }
+
+    public long getHandleHits() {
+        return handleHits.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getSoftHits() {
+        return softHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /* ---- Resources ---- */
+
+    public Collection<ServerResource> values() {
+        return byUUID.values();
+    }
+
+    public boolean contains(UUID uuid) {
+        return byUUID.containsKey(uuid);
+    }
+
+    public ServerResource get(UUID uuid) {
+        return byUUID.get(uuid);
+    }
+
+    /**
+     * Get a resource by the bits of the universal ID.
+     * @param msb The most significant bits.
+     * @param lsb The least significant bits.
+     * @return The resource or null if absent.
+     */
+    public ServerResource get(long msb, long lsb) {
+        return byUUID.get(msb, lsb);
+    }
+
+    /**
+     * Get a resource by the type and local ID,
+     * without allocating the local key.
+     * @param typeHash The type ID hash.
+     * @param id The local ID.
+     * @return The resource or null if absent.
+     */
+    public ServerResource getLocal(int typeHash, UUID id) {
+        return byLID.get(ServerResourceManager.getMemoryMapLocalKeyMost(typeHash, id), id.getLeastSignificantBits());
+    }
+
+    /**
+     * Get a resource by the local key.
+     * @see ServerResourceManager#getMemoryMapLocalKey(int, UUID)
+     * @param localKey The key of the type and local ID.
+     * @return The resource or null if absent.
+     */
+    public ServerResource getLocal(UUID localKey) {
+        return byLID.get(localKey);
+    }
+
+    /**
+     * Registers the resource, replacing any
+     * resource with the same universal ID.
+     * @param resource The resource.
+     * @return The replaced resource or null.
+     */
+    public ServerResource put(ServerResource resource) {
+        UUID uuid = resource.universalID();
+        synchronized (lockFor(uuid)) {
+            ServerResource old = byUUID.put(uuid, resource);
+            soft.remove(uuid);
+            if (old != null)
+                byLID.remove(localMost(old), old.localID().getLeastSignificantBits(), old);
+            byLID.put(localMost(resource), resource.localID().getLeastSignificantBits(), resource);
+            if (old != null && old != resource)
+                lookups.remove(old);
+            lookups.update(resource);
+            return old;
+        }
+    }
+
+    /**
+     * Registers the resource if no resource with
+     * the same universal ID is registered.
+     * @param resource The resource.
+     * @return The registered resource, which is
+     *         the given one if it was absent.
+     */
+    public ServerResource putIfAbsent(ServerResource resource) {
+        UUID uuid = resource.universalID();
+        synchronized (lockFor(uuid)) {
+            ServerResource present = byUUID.putIfAbsent(uuid, resource);
+            if (present != null)
+                return present;
+            soft.remove(uuid);
+            byLID.put(localMost(resource), resource.localID().getLeastSignificantBits(), resource);
+            lookups.update(resource);
+            return resource;
+        }
+    }
+
+    /**
+     * Indexes the current values of the lookup fields
+     * of the resource, if it is the registered one for
+     * its universal ID. Called when it is saved, and
+     * should be called when the lookup fields of a new
+     * resource are set, as it is not saved yet.
+     * @param resource The resource.
+     */
+    public void reindex(ServerResource resource) {
+        UUID uuid = resource.universalID();
+        synchronized (lockFor(uuid)) {
+            if (byUUID.get(uuid) == resource)
+                lookups.update(resource);
+        }
+    }
+
+    /**
+     * Get the resource or restore it
+     * from the soft cache if present.
+     * @param uuid The universal ID.
+     * @return The resource or null if absent.
+     */
+    public ServerResource getOrRestore(UUID uuid) {
+        ServerResource resource;
+        if ((resource = byUUID.get(uuid)) != null) {
+            hits.increment();
+            return resource;
+        }
+        return restore(uuid);
+    }
+
+    // restores the resource from the soft
+    // cache, registering it again
+    private ServerResource restore(UUID uuid) {
+        SoftEntry entry = soft.remove(uuid);
+        if (entry == null)
+            return null;
+        ServerResource resource = entry.get();
+        if (resource == null)
+            return null;
+        // the resource was evicted to be unloaded,
+        // allow it to be acquired again
+        resource.cancelEvict();
+        softHits.increment();
+        return putIfAbsent(resource);
+    }
+
+    /**
+     * Get the resource, restore it from the soft
+     * cache or create and register it if absent.
+     * The function is called outside of
+     * any lock, so it may load other resources, and
+     * only once for all threads concurrently calling
+     * this with the same universal ID. If the resource
+     * was registered otherwise in the meantime, that
+     * instance is returned instead.
+     * @param uuid The universal ID.
+     * @param function The function creating the resource.
+     * @return The registered resource or null if
+     *         the function returned null.
+     */
+    @SuppressWarnings("unchecked")
+    public <R extends ServerResource> R computeIfAbsent(UUID uuid, Function<UUID, R> function) {
+        ServerResource resource;
+        if ((resource = byUUID.get(uuid)) != null) {
+            hits.increment();
+            return (R) resource;
+        }
+        return (R) loadOnce(loadsByUUID, uuid, () -> {
+            // check if a load finished in the meantime
+            ServerResource present = byUUID.get(uuid);
+            if (present != null)
+                return present;
+            if ((present = restore(uuid)) != null)
+                return present;
+
+            misses.increment();
+            ServerResource created = function.apply(uuid);
+            return created != null ? putIfAbsent(created) : null;
+        });
+    }
+
+    /**
+     * Runs the load by the local key once for all
+     * threads concurrently loading with the same key.
+     * @see ServerResourceManager#getMemoryMapLocalKey(int, UUID)
+     * @param localKey The key of the type and local ID.
+     * @param loader The load, which should register the resource.
+     * @return The loaded resource or null if absent.
+     */
+    @SuppressWarnings("unchecked")
+    public <R extends ServerResource> R loadLocalOnce(UUID localKey, Supplier<R> loader) {
+        ServerResource resource;
+        if ((resource = byLID.get(localKey)) != null)
+            return (R) resource;
+        return (R) loadOnce(loadsByLID, localKey, () -> {
+            // check if a load finished in the meantime
+            ServerResource present = byLID.get(localKey);
+            return present != null ? present : loader.get();
+        });
+    }
+
+    /**
+     * Get the resource, restore it from the soft cache
+     * or start loading it if absent, without blocking.
+     * The function is called once for all callers
+     * concurrently loading the same universal ID, also
+     * sharing the loads of {@link #computeIfAbsent(UUID, Function)}.
+     * @param uuid The universal ID.
+     * @param function The function starting the fetch
+     *                 of the resource, without registering it.
+     * @return The future of the registered resource,
+     *         completing with null if absent.
+     */
+    @SuppressWarnings("unchecked")
+    public <R extends ServerResource> CompletableFuture<R> computeIfAbsentAsync(UUID uuid,
+                                                                              Function<UUID, CompletableFuture<R>> function) {
+        ServerResource resource;
+        if ((resource = getOrRestore(uuid)) != null)
+            return CompletableFuture.completedFuture((R) resource);
+        return (CompletableFuture<R>) loadOnceAsync(loadsByUUID, uuid, () -> {
+            // check if a load finished in the meantime
+            ServerResource present = getOrRestore(uuid);
+            if (present != null)
+                return CompletableFuture.completedFuture(present);
+
+            misses.increment();
+            return function.apply(uuid).thenApply(created -> created != null ? putIfAbsent(created) : null);
+        });
+    }
+
+    /**
+     * Starts the load by the local key once for all
+     * callers concurrently loading with the same key,
+     * without blocking.
+     * @see #loadLocalOnce(UUID, Supplier)
+     * @param localKey The key of the type and local ID.
+     * @param loader The load, which should register the resource.
+     * @return The future of the loaded resource,
+     *         completing with null if absent.
+     */
+    @SuppressWarnings("unchecked")
+    public <R extends ServerResource> CompletableFuture<R> loadLocalOnceAsync(UUID localKey,
+                                                                            Supplier<CompletableFuture<R>> loader) {
+        ServerResource resource;
+        if ((resource = byLID.get(localKey)) != null)
+            return CompletableFuture.completedFuture((R) resource);
+        return (CompletableFuture<R>) loadOnceAsync(loadsByLID, localKey, () -> {
+            // check if a load finished in the meantime
+            ServerResource present = byLID.get(localKey);
+            return present != null ? CompletableFuture.completedFuture(present) : loader.get();
+        });
+    }
+
+    /**
+     * Get the load in progress for the universal ID.
+     * @param uuid The universal ID.
+     * @return The future of the load or null if not loading.
+     */
+    public CompletableFuture<ServerResource> loading(UUID uuid) {
+        return loadsByUUID.get(uuid);
+    }
+
+    /**
+     * Get the load in progress for the local key.
+     * @param localKey The key of the type and local ID.
+     * @return The future of the load or null if not loading.
+     */
+    public CompletableFuture<ServerResource> loadingLocal(UUID localKey) {
+        return loadsByLID.get(localKey);
+    }
+
+    // runs the load or waits for the
+    // load already in progress for the key
+    private ServerResource loadOnce(ConcurrentHashMap<UUID, Load> loads,
+                                    UUID key,
+                                    Supplier<? extends ServerResource> loader) {
+        Load load = new Load(Thread.currentThread());
+        Load inFlight = loads.putIfAbsent(key, load);
+        if (inFlight != null) {
+            // dont wait on a load of this
+            // thread, it would never complete
+            if (inFlight.owner == Thread.currentThread())
+                return loader.get();
+            return inFlight.join();
+        }
+
+        try {
+            ServerResource resource = loader.get();
+            load.complete(resource);
+            return resource;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    // starts the load or shares the load already
+    // in progress for the key, the load is completed
+    // by the future returned by the loader
+    private CompletableFuture<ServerResource> loadOnceAsync(ConcurrentHashMap<UUID, Load> loads,
+                                                            UUID key,
+                                                            Supplier<? extends CompletableFuture<? extends ServerResource>> loader) {
+        Load load = new Load(null);
+        Load inFlight = loads.putIfAbsent(key, load);
+        if (inFlight != null)
+            return inFlight;
+
+        CompletableFuture<? extends ServerResource> future;
+        try {
+            future = loader.get();
+        } catch (RuntimeException | Error e) {
+            loads.remove(key, load);
+            load.completeExceptionally(e);
+            return load;
+        }
+
+        future.whenComplete((resource, t) -> {
+            loads.remove(key, load);
+            if (t != null)
+                load.completeExceptionally(t);
+            else
+                load.complete(resource);
+        });
+        return load;
+    }
+
+    /**
+     * Removes the resource if it is the
+     * registered one for its universal ID,
+     * keeping it in the soft cache if enabled.
+     * @param resource The resource.
+     * @return If it was removed.
+     */
+    public boolean remove(ServerResource resource) {
+        UUID uuid = resource.universalID();
+        synchronized (lockFor(uuid)) {
+            if (!byUUID.remove(uuid, resource))
+                return false;
+            byLID.remove(localMost(resource), resource.localID().getLeastSignificantBits(), resource);
+            lookups.remove(resource);
+            if (softCache)
+                soft.put(uuid, new SoftEntry(resource, reclaimed));
+        }
+
+        expunge();
+        return true;
+    }
+
+    // removes the entries of reclaimed
+    // resources from the soft cache
+    private void expunge() {
+        SoftEntry entry;
+        while ((entry = (SoftEntry) reclaimed.poll()) != null)
+            soft.remove(entry.uuid, entry);
+    }
+
+}
@@ -1,7 +1,12 @@
 package net.orbyfied.hscsms.core.resource;
 
+import net.orbyfied.hscsms.db.DatabaseItem;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A resource loaded in memory by a server.
@@ -9,6 +14,21 @@ import java.util.UUID;
 @SuppressWarnings("rawtypes")
 public class ServerResource {
 
+    // the handle to the usage counter
+    private static final VarHandle USAGES;
+
+    // the usage count of a resource
+    // claimed to be evicted
+    private static final int EVICTING = Integer.MIN_VALUE;
+
+    static {
+        try {
+            USAGES = MethodHandles.lookup().findVarHandle(ServerResource.class, "usages", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     /**
      * The universal resource unique identifier.
      */
@@ -25,6 +45,24 @@ public class ServerResource {
      */
     private final UUID localId;
 
+    /**
+     * The amount of acquired usages, or {@link #EVICTING}
+     * if being evicted, updated through {@link #USAGES}.
+     */
+    private volatile int usages;
+
+    /**
+     * The database item this resource was last loaded from
+     * or saved to, holding the stored values, so saves only
+     * write the changed ones. Guarded by {@link #saveLock}.
+     */
+    DatabaseItem storedItem;
+
+    /**
+     * The lock held while saving this resource.
+     */
+    final ReentrantLock saveLock = new ReentrantLock();
+
     public ServerResource(UUID uuid, ServerResourceType type, UUID localId) {
         this.uuid    = uuid;
         this.localId = localId;
@@ -55,6 +93,74 @@ public class ServerResource {
         return localId;
     }
 
+    /* ---- Usages ---- */
+
+    /**
+     * Get the amount of acquired usages.
+     * @return The usage count.
+     */
+    public int usages() {
+        int count = usages;
+        return count < 0 ? 0 : count;
+    }
+
+    /**
+     * Check if this resource has been claimed to
+     * be evicted, so it can not be acquired.
+     * @return If it is being evicted.
+     */
+    public boolean isEvicting() {
+        return usages == EVICTING;
+    }
+
+    /**
+     * Atomically increments the usage count,
+     * unless the resource is being evicted.
+     * @return The new usage count, or -1 if
+     *         the resource is being evicted.
+     */
+    public int acquireUsage() {
+        int count;
+        do {
+            if ((count = usages) == EVICTING)
+                return -1;
+        } while (!USAGES.compareAndSet(this, count, count + 1));
+        return count + 1;
+    }
+
+    /**
+     * Atomically decrements the usage
+     * count, without going below zero.
+     * @return The new usage count.
+     */
+    public int releaseUsage() {
+        int count;
+        do {
+            if ((count = usages) <= 0)
+                return 0;
+        } while (!USAGES.compareAndSet(this, count, count - 1));
+        return count - 1;
+    }
+
+    /**
+     * Atomically claims this resource to be evicted
+     * if it is unused, after which it can not be
+     * acquired until it is restored.
+     * @return If it was claimed.
+     */
+    public boolean tryEvict() {
+        return USAGES.compareAndSet(this, 0, EVICTING);
+    }
+
+    /**
+     * Releases the claim to evict this resource,
+     * when it was not unloaded or is restored.
+     * @return If it was claimed.
+     */
+    public boolean cancelEvict() {
+        return USAGES.compareAndSet(this, EVICTING, 0);
+    }
+
     /* ---- Object ---- */
 
     @Override
@@ -14,7 +14,10 @@ public class ServerResourceHandle<R extends ServerResource> {
 
     // the loaded resource if loaded
     // or null if unloaded
-    WeakReference<R> resource;
+    volatile WeakReference<R> resource;
+    // the resource held strongly while acquired,
+    // so it can not be collected while in use
+    volatile R strong;
     // if the resource has been acquired
     volatile boolean acquired = false;
 
@@ -63,11 +66,25 @@ public class ServerResourceHandle<R extends ServerResource> {
      * @return The resource or null.
      */
     public R getOrNull() {
+        // check acquired
+        R res;
+        if ((res = strong) != null)
+            return res;
+
         // check if unloaded
-        if (resource == null)
+        WeakReference<R> ref;
+        if ((ref = resource) == null)
             return null;
         // return loaded or null reference
-        return resource.get();
+        return ref.get();
+    }
+
+    // sets the loaded resource
+    private R setLoaded(R res) {
+        resource = new WeakReference<>(res);
+        if (acquired)
+            strong = res;
+        return res;
     }
 
     /**
@@ -76,11 +93,17 @@ public class ServerResourceHandle<R extends ServerResource> {
      * @return The resource.
      */
     public R getOrLoad() {
+        // check acquired
+        R res;
+        if ((res = strong) != null) {
+            manager.registry().countHandleHit();
+            return res;
+        }
+
         // check loaded, if not load
-        if (resource == null || resource.get() == null)
-            resource = new WeakReference<>(manager.loadResourceUnwrapped(uuid));
-        // return already loaded
-        return resource.get();
+        if ((res = getOrNull()) == null)
+            res = setLoaded(manager.loadResourceUnwrapped(uuid));
+        return res;
     }
 
     /**
@@ -89,26 +112,20 @@ public class ServerResourceHandle<R extends ServerResource> {
      * @return The resource.
      */
     public CompletableFuture<R> getOrLoadAsync() {
-        // check loaded
-        if (resource == null || resource.get() == null) {
-            return CompletableFuture.supplyAsync(() -> {
-                // load the resource
-                R res = manager.loadResourceUnwrapped(uuid);
-                // set resource reference
-                synchronized (resource) {
-                    resource = new WeakReference<>((R) res);
-                }
-
-                // return
-                return res;
-            });
-
+        // check acquired
+        R res;
+        if ((res = strong) != null) {
+            manager.registry().countHandleHit();
+            return CompletableFuture.completedFuture(res);
         }
 
         // return already loaded
-        CompletableFuture<R> future = new CompletableFuture<>();
-        future.complete(resource.get());
-        return future;
+        if ((res = getOrNull()) != null)
+            return CompletableFuture.completedFuture(res);
+
+        // load the resource and
+        // set the resource reference
+        return manager.<R>loadResourceUnwrappedAsync(uuid).thenApply(this::setLoaded);
     }
 
     /**
@@ -173,15 +190,28 @@ public class ServerResourceHandle<R extends ServerResource> {
      * Marks this resource as used so it is,
      * for example, not collected by the garbage
      * collector. This allows you to use it without
-     * it being unloaded. It is set in this state by
-     * default by the resource manager.
+     * it being unloaded. While acquired, the loaded
+     * resource is referenced strongly so it can not be
+     * reclaimed. It is set in this state by default by
+     * the resource manager.
      * @return This.
      */
-    public ServerResourceHandle<R> acquire() {
+    public synchronized ServerResourceHandle<R> acquire() {
         // check if acquired
         if (!acquired) {
-            // call into manager
-            manager.doHandleAcquire(this);
+            // hold strongly while acquired
+            strong = getOrNull();
+
+            // call into manager, if the resource is
+            // being evicted wait for it to be unloaded
+            // and acquire the newly loaded instance
+            while (!manager.doHandleAcquire(this)) {
+                R evicted = strong;
+                strong   = null;
+                resource = null;
+                manager.awaitUnloaded(evicted);
+                strong   = setLoaded(manager.loadResourceUnwrapped(uuid));
+            }
 
             // set acquired
             acquired = true;
@@ -201,7 +231,7 @@ public class ServerResourceHandle<R extends ServerResource> {
      * after disposal until it is unloaded.
      * @return This.
      */
-    public ServerResourceHandle<R> release() {
+    public synchronized ServerResourceHandle<R> release() {
         // check if acquired
         if (acquired) {
             // call into manager
@@ -209,6 +239,7 @@ public class ServerResourceHandle<R extends ServerResource> {
 
             // set released
             acquired = false;
+            strong   = null;
         }
 
         // return
@@ -3,8 +3,15 @@ package net.orbyfied.hscsms.core.resource;
 import com.mongodb.Function;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
 import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import net.orbyfied.hscsms.core.resource.event.ResourceCreateEvent;
@@ -12,10 +19,16 @@ import net.orbyfied.hscsms.core.resource.event.ResourceHandleAcquireEvent;
 import net.orbyfied.hscsms.core.resource.event.ResourceHandleReleaseEvent;
 import net.orbyfied.hscsms.core.resource.event.ResourceUnloadEvent;
 import net.orbyfied.hscsms.core.resource.impl.ResourceGCService;
+import net.orbyfied.hscsms.core.resource.impl.ResourceWriteBehindService;
+import net.orbyfied.hscsms.core.resource.impl.SnowflakeIdGenerator;
 import net.orbyfied.hscsms.db.Database;
 import net.orbyfied.hscsms.db.DatabaseItem;
 import net.orbyfied.hscsms.db.DatabaseType;
+import net.orbyfied.hscsms.db.PreparedQuery;
 import net.orbyfied.hscsms.db.QueryPool;
+import net.orbyfied.hscsms.db.impl.InMemoryCollection;
+import net.orbyfied.hscsms.db.impl.InMemoryDatabase;
+import net.orbyfied.hscsms.db.impl.InMemoryDatabaseItem;
 import net.orbyfied.hscsms.db.impl.MongoDatabaseItem;
 import net.orbyfied.hscsms.server.Server;
 import net.orbyfied.hscsms.service.Logging;
@@ -31,6 +44,9 @@ import org.bson.conversions.Bson;
 import java.lang.reflect.Field;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.BiConsumer;
 
 @SuppressWarnings("rawtypes")
@@ -47,10 +63,19 @@ public class ServerResourceManager {
 
     public static UUID getMemoryMapLocalKey(int typeHash, UUID id) {
         return new UUID(
-                id.getMostSignificantBits() ^ ((long)typeHash * 31L),
+                getMemoryMapLocalKeyMost(typeHash, id),
                 id.getLeastSignificantBits());
     }
 
+    /**
+     * Get the most significant bits of the local key,
+     * the least significant bits are the ones of the ID.
+     * @see ServerResourceManager#getMemoryMapLocalKey(int, UUID)
+     */
+    public static long getMemoryMapLocalKeyMost(int typeHash, UUID id) {
+        return id.getMostSignificantBits() ^ ((long)typeHash * 31L);
+    }
+
     public static UUID getMemoryMapLocalKey(ServerResource resource) {
         return getMemoryMapLocalKey(resource.type().idHash, resource.localID());
     }
@@ -73,6 +98,8 @@ public class ServerResourceManager {
 
         // add garbage collection service
         withService(ResourceGCService::new);
+        // add write-behind persistence service
+        withService(ResourceWriteBehindService::new);
     }
 
     // the server
@@ -83,8 +110,9 @@ public class ServerResourceManager {
     private final ArrayList<ServerResourceType>             types       = new ArrayList<>();
 
     // the loaded resources
-    private final Object2ObjectOpenHashMap<UUID, ServerResource> resourcesByLID  = new Object2ObjectOpenHashMap<>();
-    private final Object2ObjectOpenHashMap<UUID, ServerResource> resourcesByUUID = new Object2ObjectOpenHashMap<>();
+    private final ResourceRegistry registry = new ResourceRegistry();
+    // the generator of resource IDs
+    private ResourceIdGenerator idGenerator = new SnowflakeIdGenerator(0);
 
     // the database
     private Database database;
@@ -92,15 +120,28 @@ public class ServerResourceManager {
     private final QueryPool globalQueryPool;
     // the thread local query pools
     private final ThreadLocal<QueryPool> queryPool = new ThreadLocal<>();
+    // the prepared queries of the current database
+    private volatile ResourceQueries queries;
+
+    // if handle acquire and release events are posted
+    protected boolean postHandleEvents = true;
 
     // services
     protected final ComplexEventBus eventBus = new ComplexEventBus();
     protected final List<ResourceService>                                      services = new ArrayList<>();
     protected final Object2ObjectOpenHashMap<Class<?>, ResourceService> servicesByClass = new Object2ObjectOpenHashMap<>();
 
+    // if the manager has been set up
+    private boolean setup = false;
+
     public void setup() {
         // load query pool presets
         loadQueryPoolPresets(globalQueryPool);
+        setup = true;
+
+        // create the database indexes
+        if (database != null)
+            ensureIndexes(true, types);
     }
 
     /* ----- Services ----- */
@@ -181,11 +222,86 @@ public class ServerResourceManager {
         return q;
     }
 
+    /**
+     * The resource queries prepared for a database.
+     * @see ServerResourceManager#queries()
+     */
+    record ResourceQueries(Database database,
+                           PreparedQuery<DatabaseItem, Database> findUuid,
+                           PreparedQuery<List<DatabaseItem>, Database> findUuids,
+                           PreparedQuery<DatabaseItem, Database> findLocal,
+                           PreparedQuery<DatabaseItem, Database> findFilter,
+                           PreparedQuery<DatabaseItem, Database> createGetUuid,
+                           PreparedQuery<DatabaseItem, Database> refUuid,
+                           PreparedQuery<Integer, Database> pushBulk) {
+
+        static ResourceQueries prepare(QueryPool pool, Database database) {
+            pool.current(database);
+            return new ResourceQueries(database,
+                    pool.prepare("find_resource_uuid", "uuid"),
+                    pool.prepare("find_resources_uuids", "uuids"),
+                    pool.prepare("find_resource_local", "localId", "typeHash"),
+                    pool.prepare("find_resource_filter", "typeHash", "filter"),
+                    pool.prepare("create_get_resource_uuid", "uuid"),
+                    pool.prepare("ref_resource_uuid", "uuid"),
+                    pool.prepare("push_resources_bulk", "items"));
+        }
+
+    }
+
+    /**
+     * Get the resource queries prepared for the current
+     * database, preparing them if the database changed.
+     * These are executed on every load and save of a
+     * resource, so they are only looked up once.
+     * @return The prepared queries.
+     */
+    ResourceQueries queries() {
+        Database database = requireDatabase();
+        ResourceQueries q;
+        if ((q = queries) != null && q.database() == database)
+            return q;
+        return queries = ResourceQueries.prepare(globalQueryPool.fork(), database);
+    }
+
     /* ---- Resource Types ---- */
 
     public ServerResourceManager registerType(ServerResourceType type) {
+        // check already registered
+        if (typesByHash.get(type.getIdentifierHash()) == type)
+            return this;
+
         types.add(type);
         typesByHash.put(type.getIdentifierHash(), type);
+
+        // create the indexes of the type
+        // if registered after setup
+        if (setup && database != null && !type.getIndexedFields().isEmpty())
+            ensureIndexes(false, List.of(type));
+        return this;
+    }
+
+    /**
+     * Creates the database indexes of the resources
+     * collection if they don't exist yet. These are
+     * the indexes by universal ID and by local ID and
+     * type, and the ones declared by the resource types.
+     * @see ServerResourceType#withIndex(String, boolean)
+     * @param base If the indexes used by all types
+     *             should be created.
+     * @param types The types to create the indexes of.
+     * @return This.
+     */
+    public ServerResourceManager ensureIndexes(boolean base, List<ServerResourceType> types) {
+        try {
+            getLocalQueryPool().current(requireDatabase()).querySync("ensure_resource_indexes", new Values()
+                    .setRaw("base", base)
+                    .setRaw("types", new ArrayList<>(types)));
+        } catch (Exception e) {
+            LOGGER.err("Error while creating resource indexes");
+            e.printStackTrace(Logging.ERR);
+        }
+
         return this;
     }
 
@@ -222,54 +338,93 @@ public class ServerResourceManager {
 
     /* ---- Resources ---- */
 
+    /**
+     * Get the executor for blocking resource work.
+     * Asynchronous loads and saves don't use it, they
+     * use the asynchronous queries, which only run on
+     * an executor if the database driver is blocking.
+     * @return The executor.
+     */
+    public Executor executor() {
+        return server != null ? server.services().ioExecutor() : ForkJoinPool.commonPool();
+    }
+
+    public ResourceRegistry registry() {
+        return registry;
+    }
+
     public boolean isLoaded(ServerResource resource) {
-        return resourcesByUUID.containsKey(resource.universalID());
+        return registry.contains(resource.universalID());
     }
 
     public boolean isLoaded(UUID uuid) {
-        return resourcesByUUID.containsKey(uuid);
+        return registry.contains(uuid);
     }
 
     public ServerResourceManager addLoaded(ServerResource resource) {
-        resourcesByUUID.put(resource.universalID(), resource);
-        resourcesByLID.put(getMemoryMapLocalKey(resource), resource);
+        registry.put(resource);
         return this;
     }
 
+    /**
+     * Adds the resource to the loaded resources
+     * if no resource with the same universal ID
+     * has been loaded yet.
+     * @param resource The resource.
+     * @return The loaded resource, which is the
+     *         given one if it was absent.
+     */
+    public ServerResource addLoadedIfAbsent(ServerResource resource) {
+        return registry.putIfAbsent(resource);
+    }
+
     public ServerResourceManager removeLoaded(ServerResource resource) {
-        resourcesByUUID.remove(resource.universalID());
-        resourcesByLID.remove(getMemoryMapLocalKey(resource));
+        registry.remove(resource);
         return this;
     }
 
     @SuppressWarnings("unchecked")
     public <R extends ServerResource> R getLoadedLocal(ServerResourceType type,
                                                        UUID id) {
-        return (R) resourcesByLID.get(getMemoryMapLocalKey(type.idHash, id));
+        return (R) registry.getLocal(type.idHash, id);
     }
 
     @SuppressWarnings("unchecked")
     public <R extends ServerResource> R getLoadedUniversal(UUID uuid) {
-        return (R) resourcesByUUID.get(uuid);
+        return (R) registry.get(uuid);
+    }
+
+    public ResourceIdGenerator idGenerator() {
+        return idGenerator;
+    }
+
+    /**
+     * Sets the generator of resource IDs, which
+     * should generate IDs unique across all servers
+     * sharing the database.
+     * @param idGenerator The ID generator.
+     * @return This.
+     */
+    public ServerResourceManager withIdGenerator(ResourceIdGenerator idGenerator) {
+        this.idGenerator = idGenerator;
+        return this;
     }
 
     /**
      * Creates a new universal unique ID
      * for a new recourse. This should have
      * no possibility of colliding with another.
+     * @see ResourceIdGenerator#nextUUID()
      * @return The universal unique ID.
      */
     public UUID createUniversalID() {
-        return new UUID(
-                System.currentTimeMillis(),
-                System.nanoTime()
-        );
+        return idGenerator.nextUUID();
     }
 
     public <R extends ServerResource> R createResourceUnwrapped(ServerResourceType<R> type) {
         // generate ids
         UUID uuid    = createUniversalID();
-        UUID localId = type.createLocalID();
+        UUID localId = type.createLocalID(this);
 
         // create new resource
         // and register it
@@ -292,37 +447,102 @@ public class ServerResourceManager {
         return createHandleLoaded(createResourceUnwrapped(type));
     }
 
-    @SuppressWarnings("unchecked")
     public <R extends ServerResource> R loadResourceUnwrapped(UUID uuid) {
-        // try and index cache
-        ServerResource res;
-        if ((res = getLoadedUniversal(uuid)) != null)
-            return (R) res;
+        // get loaded or fetch, the first
+        // registered instance wins
+        return registry.computeIfAbsent(uuid, this::fetchResource);
+    }
 
+    // fetches the resource from the database
+    // without registering it
+    private <R extends ServerResource> R fetchResource(UUID uuid) {
         // find document
         DatabaseItem item = findDatabaseResource(uuid);
         if (item != null) {
-            // get properties
-            UUID localId = item.get("localId", UUID.class);
-            int typeHash = item.get("type", Integer.class);
+            return constructResource(uuid, item);
+        } else {
+            return null;
+        }
+    }
 
-            // get type
-            ServerResourceType<R> type = getType(typeHash);
+    // constructs and loads the resource
+    // from the fetched database item
+    @SuppressWarnings("unchecked")
+    private <R extends ServerResource> R constructResource(UUID uuid, DatabaseItem item) {
+        // get properties
+        UUID localId = item.get("localId", UUID.class);
+        int typeHash = item.get("type", Integer.class);
 
-            // construct instance
-            R resource = type.newInstanceInternal(uuid, localId);
+        // get type
+        ServerResourceType<R> type = getType(typeHash);
 
-            // load data
-            type.loadResourceSafe(this, item, resource);
+        // construct instance
+        R resource = type.newInstanceInternal(uuid, localId);
 
-            // add loaded
-            addLoaded(resource);
+        // load data
+        type.loadResourceSafe(this, item, resource);
 
-            // return
-            return resource;
-        } else {
-            return null;
+        // return
+        return resource;
+    }
+
+    /**
+     * Loads many resources by universal ID, first checking
+     * which are already loaded, then fetching all of the
+     * others with one query. Every fetched resource is
+     * loaded with {@link ServerResourceType#loadResourceSafe(ServerResourceManager, DatabaseItem, ServerResource)}
+     * @param uuids The universal IDs.
+     * @param <R> The resource class.
+     * @return The resources in the order of the IDs,
+     *         excluding the absent ones.
+     */
+    @SuppressWarnings("unchecked")
+    public <R extends ServerResource> List<R> loadResourcesUnwrapped(Collection<UUID> uuids) {
+        // check loaded resources
+        Map<UUID, R> resources = new HashMap<>(uuids.size());
+        Set<UUID> missing = new LinkedHashSet<>();
+        for (UUID uuid : uuids) {
+            ServerResource resource;
+            if ((resource = registry.getOrRestore(uuid)) != null)
+                resources.put(uuid, (R) resource);
+            else
+                missing.add(uuid);
+        }
+
+        // fetch missing resources
+        if (!missing.isEmpty()) {
+            List<DatabaseItem> items = queries().findUuids().sync(new ArrayList<>(missing));
+            for (DatabaseItem item : items) {
+                UUID uuid = item.get("uuid", UUID.class);
+                resources.put(uuid, registry.computeIfAbsent(uuid, u -> constructResource(u, item)));
+            }
+        }
+
+        // collect in order
+        List<R> list = new ArrayList<>(uuids.size());
+        for (UUID uuid : uuids) {
+            R resource;
+            if ((resource = resources.get(uuid)) != null)
+                list.add(resource);
         }
+
+        return list;
+    }
+
+    /**
+     * Loads many resources by universal ID.
+     * @see ServerResourceManager#loadResourcesUnwrapped(Collection)
+     * @param uuids The universal IDs.
+     * @param <R> The resource class.
+     * @return The handles in the order of the IDs,
+     *         excluding the absent resources.
+     */
+    public <R extends ServerResource> List<ServerResourceHandle<R>> loadResources(Collection<UUID> uuids) {
+        List<R> resources = loadResourcesUnwrapped(uuids);
+        List<ServerResourceHandle<R>> handles = new ArrayList<>(resources.size());
+        for (R resource : resources)
+            handles.add(createHandleLoaded(resource));
+        return handles;
     }
 
     /**
@@ -355,7 +575,10 @@ public class ServerResourceManager {
         ServerResource resource;
         if ((resource = getLoadedLocal(type, localId)) != null)
             return createHandleLoaded((R) resource);
-        return createHandleLoaded(type.loadResourceLocal(this, localId));
+
+        // load once for concurrent callers
+        return createHandleLoaded(registry.loadLocalOnce(getMemoryMapLocalKey(type.idHash, localId),
+                () -> type.loadResourceLocal(this, localId)));
     }
 
     /**
@@ -363,16 +586,37 @@ public class ServerResourceManager {
      * the filter will check each key value pair by equality.
      * Once an item is retrieved, it will first check if the
      * resource is already loaded, if not, it will load the resource.
+     * If the filter is only by a lookup field of the type, loaded
+     * resources and values recently not found are served from
+     * memory, see {@link ResourceLookups}.
      * @param type The resource type.
      * @param eqFilter The equality filter.
      * @param <R> The resource class.
      * @return The resource or null if absent.
      */
+    @SuppressWarnings("unchecked")
     public <R extends ServerResource> R loadDatabaseResourceFiltered(ServerResourceType<R> type,
                                                                      Values eqFilter) {
+        // serve from the lookup index if
+        // filtering by one lookup field
+        ResourceLookups.Index index = registry.lookups().index(type, eqFilter);
+        Object value = null;
+        if (index != null) {
+            value = eqFilter.getRaw(index.getFieldName());
+            ServerResource loaded;
+            if ((loaded = index.get(value)) != null)
+                return (R) loaded;
+            if (index.isAbsent(value))
+                return null;
+        }
+
         // find database item
         DatabaseItem item = findDatabaseResourceFiltered(type, eqFilter);
 
+        // remember the value was not found
+        if (item == null && index != null)
+            index.putAbsent(value);
+
         // load resource if not null
         if (item != null) {
             // check resource is loaded already
@@ -385,10 +629,13 @@ public class ServerResourceManager {
                         item.get("localId", UUID.class)
                 );
 
-                addLoaded(resource);
-
                 // load data
                 type.loadResourceSafe(this, item, resource);
+
+                // add loaded, returning the already
+                // registered instance if it was loaded
+                // concurrently
+                resource = (R) addLoadedIfAbsent(resource);
             }
 
             // return
@@ -410,7 +657,79 @@ public class ServerResourceManager {
         return this;
     }
 
+    /**
+     * Saves many resources at once, writing them
+     * to the database in one bulk operation instead
+     * of a round trip per resource.
+     * @param resources The resources.
+     * @return This.
+     */
+    public ServerResourceManager saveResources(Collection<? extends ServerResource> resources) {
+        if (resources.isEmpty())
+            return this;
+        ResourceQueries queries = queries();
+
+        // lock in the order of the IDs, so concurrent
+        // bulk saves of the same resources can't deadlock
+        ServerResource[] sorted = resources.toArray(new ServerResource[0]);
+        Arrays.sort(sorted, Comparator.comparing(ServerResource::universalID));
+        for (ServerResource resource : sorted)
+            resource.saveLock.lock();
+        try {
+            // write resources into the items last stored
+            // in, so unchanged values and resources are not
+            // written, or into references to their documents
+            List<DatabaseItem> items = new ArrayList<>(sorted.length);
+            List<ServerResource> written = new ArrayList<>(sorted.length);
+            for (ServerResource resource : sorted) {
+                DatabaseItem item = storedItem(resource);
+                if (item == null)
+                    item = queries.refUuid().sync(resource.universalID());
+                if (resource.type().writeResourceSafe(this, item, resource).success()) {
+                    items.add(item);
+                    written.add(resource);
+                }
+            }
+
+            // push all items
+            queries.pushBulk().sync(items);
+            for (int i = 0; i < items.size(); i++)
+                written.get(i).storedItem = items.get(i);
+        } finally {
+            for (ServerResource resource : sorted)
+                resource.saveLock.unlock();
+        }
+
+        // index the saved values
+        for (ServerResource resource : resources)
+            registry.reindex(resource);
+        return this;
+    }
+
+    /**
+     * Schedules the resource to be saved by the write-behind
+     * service, coalescing repeated saves of the same resource.
+     * Saves asynchronously if the service is absent.
+     * @see ResourceWriteBehindService
+     * @param resource The resource.
+     * @return This.
+     */
+    public ServerResourceManager saveResourceLater(ServerResource resource) {
+        ResourceWriteBehindService writeBehind = serviceByClass(ResourceWriteBehindService.class);
+        if (writeBehind != null)
+            writeBehind.markDirty(resource);
+        else
+            saveResourceAsync(resource);
+        return this;
+    }
+
     public ServerResourceManager unloadResource(ServerResource resource) {
+        // store pending save first, so the resource
+        // is not loaded again with outdated data
+        ResourceWriteBehindService writeBehind = serviceByClass(ResourceWriteBehindService.class);
+        if (writeBehind != null)
+            writeBehind.flush(resource);
+
         // remove resource
         removeLoaded(resource);
 
@@ -422,34 +741,174 @@ public class ServerResourceManager {
     }
 
     /**
-     * Loads a resource asynchronously.
+     * Loads a resource asynchronously, sharing the
+     * load in progress. The database is queried with
+     * the asynchronous query, so with a non-blocking
+     * database no thread waits for it, and the resource
+     * is constructed on the callback of the driver.
      * @see ServerResourceManager#loadResource(UUID)
      */
     public <R extends ServerResource> CompletableFuture<ServerResourceHandle<R>> loadResourceAsync(final UUID uuid) {
-        return CompletableFuture.supplyAsync(() -> loadResource(uuid));
+        return this.<R>loadResourceUnwrappedAsync(uuid).thenApply(this::createHandleLoaded);
+    }
+
+    /**
+     * Loads a resource asynchronously, without
+     * creating a handle.
+     * @see ServerResourceManager#loadResourceAsync(UUID)
+     */
+    public <R extends ServerResource> CompletableFuture<R> loadResourceUnwrappedAsync(final UUID uuid) {
+        return registry.computeIfAbsentAsync(uuid, this::fetchResourceAsync);
+    }
+
+    // fetches the resource from the database
+    // asynchronously without registering it
+    private <R extends ServerResource> CompletableFuture<R> fetchResourceAsync(UUID uuid) {
+        return queries().findUuid().async(uuid)
+                .thenApply(item -> item != null ? constructResource(uuid, item) : null);
+    }
+
+    /**
+     * Loads many resources asynchronously, fetching
+     * the resources which are not loaded with one
+     * asynchronous query.
+     * @see ServerResourceManager#loadResources(Collection)
+     */
+    @SuppressWarnings("unchecked")
+    public <R extends ServerResource> CompletableFuture<List<ServerResourceHandle<R>>> loadResourcesAsync(final Collection<UUID> uuids) {
+        // check loaded resources
+        Map<UUID, R> resources = new HashMap<>(uuids.size());
+        List<UUID> missing = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            ServerResource resource;
+            if ((resource = registry.getOrRestore(uuid)) != null)
+                resources.put(uuid, (R) resource);
+            else if (!missing.contains(uuid))
+                missing.add(uuid);
+        }
+
+        // fetch missing resources
+        CompletableFuture<List<DatabaseItem>> fetched = missing.isEmpty() ?
+                CompletableFuture.completedFuture(List.of()) :
+                queries().findUuids().async(missing);
+        return fetched.thenApply(items -> {
+            // register the fetched resources, without waiting
+            // for loads in progress of the same resources
+            for (DatabaseItem item : items) {
+                UUID uuid = item.get("uuid", UUID.class);
+                R resource;
+                if ((resource = getLoadedUniversal(uuid)) == null)
+                    resource = (R) addLoadedIfAbsent(constructResource(uuid, item));
+                resources.put(uuid, resource);
+            }
+
+            // collect handles in order
+            List<ServerResourceHandle<R>> handles = new ArrayList<>(uuids.size());
+            for (UUID uuid : uuids) {
+                R resource;
+                if ((resource = resources.get(uuid)) != null)
+                    handles.add(createHandleLoaded(resource));
+            }
+
+            return handles;
+        });
     }
 
     /**
-     * Loads a resource by local ID asynchronously.
+     * Loads a resource by local ID asynchronously,
+     * sharing the load in progress.
      * @see ServerResourceManager#loadResourceLocal(ServerResourceType, UUID)
+     * @see ServerResourceType#loadResourceLocalAsync(ServerResourceManager, UUID)
      */
+    @SuppressWarnings("unchecked")
     public <R extends ServerResource> CompletableFuture<ServerResourceHandle<R>> loadResourceLocalAsync(final ServerResourceType<R> type,
                                                                                                         final UUID localId) {
-        return CompletableFuture.supplyAsync(() -> loadResourceLocal(type, localId));
+        // check loaded
+        R resource;
+        if ((resource = getLoadedLocal(type, localId)) != null)
+            return CompletableFuture.completedFuture(createHandleLoaded(resource));
+
+        return registry.loadLocalOnceAsync(getMemoryMapLocalKey(type.idHash, localId),
+                () -> type.loadResourceLocalAsync(this, localId)).thenApply(this::createHandleLoaded);
+    }
+
+    /**
+     * Loads a database resource by an equality filter
+     * asynchronously, serving it from the lookup index
+     * if possible.
+     * @see ServerResourceManager#loadDatabaseResourceFiltered(ServerResourceType, Values)
+     */
+    @SuppressWarnings("unchecked")
+    public <R extends ServerResource> CompletableFuture<R> loadDatabaseResourceFilteredAsync(ServerResourceType<R> type,
+                                                                                             Values eqFilter) {
+        // serve from the lookup index if
+        // filtering by one lookup field
+        ResourceLookups.Index index = registry.lookups().index(type, eqFilter);
+        Object value = null;
+        if (index != null) {
+            value = eqFilter.getRaw(index.getFieldName());
+            ServerResource loaded;
+            if ((loaded = index.get(value)) != null)
+                return CompletableFuture.completedFuture((R) loaded);
+            if (index.isAbsent(value))
+                return CompletableFuture.completedFuture(null);
+        }
+
+        final Object fvalue = value;
+        return queries().findFilter().async(type.idHash, eqFilter).thenApply(item -> {
+            // remember the value was not found
+            if (item == null) {
+                if (index != null)
+                    index.putAbsent(fvalue);
+                return null;
+            }
+
+            // load resource if not loaded
+            UUID uuid = item.get("uuid", UUID.class);
+            R resource;
+            if ((resource = getLoadedUniversal(uuid)) == null) {
+                resource = type.newInstanceInternal(uuid, item.get("localId", UUID.class));
+                type.loadResourceSafe(this, item, resource);
+                resource = (R) addLoadedIfAbsent(resource);
+            }
+
+            return resource;
+        });
     }
 
     /**
-     * Saves a resource asynchronously.
+     * Saves a resource asynchronously. The resource is
+     * written into a reference to its document, which is
+     * pushed with the asynchronous query, so with a
+     * non-blocking database no thread waits for it.
+     * The next save finds the document again, as the
+     * asynchronous save replaces the stored item.
      * @see ServerResourceManager#saveResource(ServerResource)
      */
     public CompletableFuture<Void> saveResourceAsync(final ServerResource resource) {
-        return CompletableFuture.runAsync(() -> saveResource(resource));
+        ResourceQueries queries = queries();
+        return queries.refUuid().async(resource.universalID()).thenCompose(item -> {
+            boolean written;
+            resource.saveLock.lock();
+            try {
+                // a concurrent save must not diff against
+                // the values stored before this save
+                resource.storedItem = null;
+                written = resource.type().writeResourceSafe(this, item, resource).success();
+            } finally {
+                resource.saveLock.unlock();
+            }
+
+            if (!written)
+                return CompletableFuture.<Void>completedFuture(null);
+            return queries.pushBulk().async(List.of(item)).thenAccept(n -> registry.reindex(resource));
+        });
     }
 
     public UUID saveResourceReference(final ServerResource resource) {
         if (resource == null)
             return NULL_ID;
-        saveResourceAsync(resource);
+        saveResourceLater(resource);
         return resource.universalID();
     }
 
@@ -465,9 +924,20 @@ public class ServerResourceManager {
      * @return The item or null if absent.
      */
     public DatabaseItem findDatabaseResource(UUID uuid) {
-        QueryPool pool = getLocalQueryPool();
-        return pool.current(requireDatabase())
-                .querySync("find_resource_uuid", new Values().setRaw("uuid", uuid));
+        return queries().findUuid().sync(uuid);
+    }
+
+    /**
+     * Get the database item the resource was last loaded
+     * from or saved to, if it is of the current database.
+     * Should only be used while holding the save lock of
+     * the resource.
+     * @param resource The resource.
+     * @return The item or null if absent.
+     */
+    DatabaseItem storedItem(ServerResource resource) {
+        DatabaseItem item = resource.storedItem;
+        return item != null && item.database() == database() ? item : null;
     }
 
     /**
@@ -482,9 +952,7 @@ public class ServerResourceManager {
 
         // create if null
         if (item == null) {
-            QueryPool pool = getLocalQueryPool();
-            item = pool.current(requireDatabase())
-                    .querySync("create_get_resource_uuid", new Values().setRaw("uuid", uuid));
+            item = queries().createGetUuid().sync(uuid);
         }
 
         // return item
@@ -493,15 +961,7 @@ public class ServerResourceManager {
 
     public DatabaseItem findDatabaseResourceFiltered(ServerResourceType type,
                                                      Values eqFilter) {
-        // execute query
-        QueryPool pool = getLocalQueryPool();
-        DatabaseItem item = pool.current(requireDatabase())
-                .querySync("find_resource_filter", new Values()
-                        .setRaw("typeHash", type.idHash)
-                        .setRaw("filter", eqFilter));
-
-        // return item
-        return item;
+        return queries().findFilter().sync(type.idHash, eqFilter);
     }
 
     /* ---- Resource Handles ---- */
@@ -515,14 +975,65 @@ public class ServerResourceManager {
         return new ServerResourceHandle<>(this, resource).acquire();
     }
 
-    protected void doHandleAcquire(ServerResourceHandle handle) {
+    /**
+     * Sets if handle acquire and release events
+     * are posted. Usages are still tracked by the
+     * garbage collection service if it tracks them
+     * directly.
+     * @param b If events should be posted.
+     * @return This.
+     */
+    public ServerResourceManager withHandleEvents(boolean b) {
+        this.postHandleEvents = b;
+        return this;
+    }
+
+    /**
+     * Called when a handle is acquired.
+     * @param handle The handle.
+     * @return False if the resource of the handle
+     *         is being evicted, so it must be loaded
+     *         again, true otherwise.
+     */
+    protected boolean doHandleAcquire(ServerResourceHandle handle) {
+        // track usage directly
+        ResourceGCService gc = serviceByClass(ResourceGCService.class);
+        if (gc != null && gc.isAutomated() && gc.isDirect()) {
+            ServerResource resource = handle.getOrNull();
+            if (resource != null && !gc.acquireImmediate(resource))
+                return false;
+        }
+
         // call event
-        eventBus.post(new ResourceHandleAcquireEvent(this, handle));
+        if (postHandleEvents)
+            eventBus.post(new ResourceHandleAcquireEvent(this, handle));
+        return true;
+    }
+
+    /**
+     * Waits until the resource, which is being
+     * evicted, is no longer the loaded instance.
+     * @param resource The resource.
+     */
+    void awaitUnloaded(ServerResource resource) {
+        if (resource == null)
+            return;
+        while (registry.get(resource.universalID()) == resource && resource.isEvicting())
+            LockSupport.parkNanos(50_000);
     }
 
     protected void doHandleRelease(ServerResourceHandle handle) {
+        // track usage directly
+        ResourceGCService gc = serviceByClass(ResourceGCService.class);
+        if (gc != null && gc.isAutomated() && gc.isDirect()) {
+            ServerResource resource = handle.getOrNull();
+            if (resource != null)
+                gc.releaseImmediate(resource);
+        }
+
         // call event
-        eventBus.post(new ResourceHandleReleaseEvent(this, handle));
+        if (postHandleEvents)
+            eventBus.post(new ResourceHandleReleaseEvent(this, handle));
     }
 
     /* ---- Database Utilities ---- */
@@ -554,7 +1065,7 @@ public class ServerResourceManager {
         return collection;
     }
 
-    private Bson mongoToFilterEq(Values values) {
+    static Bson mongoToFilterEq(Values values) {
         Bson[] bsons = new Bson[values.getSize()];
         int i = 0;
         for (Map.Entry<Object, Object> entry : values.entrySet()) {
@@ -563,24 +1074,77 @@ public class ServerResourceManager {
         return Filters.and(bsons);
     }
 
+    private InMemoryCollection memoryGetOrCreateResCollection(InMemoryDatabase database) {
+        return database.getOrCreateCollection(getCollectionName(), "uuid", collection -> collection
+                .index("localId")
+                .index("type"));
+    }
+
+    private Map<String, Object> memoryToFilterEq(Values values) {
+        Map<String, Object> filter = new HashMap<>();
+        for (Map.Entry<Object, Object> entry : values.entrySet())
+            filter.put((String) entry.getKey(), entry.getValue());
+        return filter;
+    }
+
+    // creates the models of the indexes
+    // of the resources collection
+    static List<IndexModel> mongoCreateIndexModels(boolean base, List<ServerResourceType> types) {
+        List<IndexModel> indexes = new ArrayList<>();
+        if (base) {
+            indexes.add(new IndexModel(Indexes.ascending("uuid"),
+                    new IndexOptions().name("uuid").unique(true)));
+            indexes.add(new IndexModel(Indexes.ascending("localId", "type"),
+                    new IndexOptions().name("localId_type")));
+            indexes.add(new IndexModel(Indexes.ascending("type"),
+                    new IndexOptions().name("type")));
+        }
+
+        // index the declared fields of each type, only
+        // over the documents of the type having the field
+        for (ServerResourceType<?> type : types) {
+            for (ServerResourceType.IndexedField field : type.getIndexedFields()) {
+                indexes.add(new IndexModel(Indexes.ascending("type", field.name()), new IndexOptions()
+                        .name("type_" + type.getIdentifierHash() + "_" + field.name())
+                        .unique(field.unique())
+                        .partialFilterExpression(Filters.and(
+                                Filters.eq("type", type.getIdentifierHash()),
+                                Filters.exists(field.name())))));
+            }
+        }
+
+        return indexes;
+    }
+
     private void loadQueryPoolPresets(QueryPool pool) {
 
+        /* MongoDB */
+
         pool.putQuery("find_resource_uuid", DatabaseType.MONGO_DB, (query, database, values) -> {
             // get collection
             MongoCollection<Document> collection = mongoGetOrCreateResCollection(database.getDatabaseClient());
             UUID uuid = values.get("uuid");
-            Document doc = collection.find(
-                    Filters.and(Projections.excludeId(),
-                            Filters.eq("uuid", values.get("uuid")))
-            ).projection(Projections.excludeId()).first();
+            Document doc = collection.find(Filters.eq("uuid", uuid))
+                    .projection(Projections.excludeId()).first();
             if (doc != null) {
-                return new MongoDatabaseItem(database, "uuid", collection, uuid)
-                        .pull();
+                return new MongoDatabaseItem(database, "uuid", collection, uuid, doc);
             } else {
                 return null;
             }
         });
 
+        pool.putQuery("find_resources_uuids", DatabaseType.MONGO_DB, (query, database, values) -> {
+            // get collection
+            MongoCollection<Document> collection = mongoGetOrCreateResCollection(database.getDatabaseClient());
+            List<UUID> uuids = values.getRaw("uuids");
+
+            // fetch all documents at once
+            List<DatabaseItem> items = new ArrayList<>(uuids.size());
+            for (Document doc : collection.find(Filters.in("uuid", uuids)).projection(Projections.excludeId()))
+                items.add(new MongoDatabaseItem(database, "uuid", collection, doc.get("uuid", UUID.class), doc));
+            return items;
+        });
+
         pool.putQuery("find_resource_local", DatabaseType.MONGO_DB, (query, database, values) -> {
             // get collection
             MongoCollection<Document> collection = mongoGetOrCreateResCollection(database.getDatabaseClient());
@@ -589,8 +1153,7 @@ public class ServerResourceManager {
                             Filters.eq("type", values.get("typeHash")))
             ).projection(Projections.excludeId()).first();
             if (doc != null) {
-                return new MongoDatabaseItem(database, "uuid", collection, doc.get("uuid", UUID.class))
-                        .pull();
+                return new MongoDatabaseItem(database, "uuid", collection, doc.get("uuid", UUID.class), doc);
             } else {
                 return null;
             }
@@ -605,8 +1168,7 @@ public class ServerResourceManager {
             ).projection(Projections.excludeId()).first();
 
             if (doc != null) {
-                return new MongoDatabaseItem(database, "uuid", collection, doc.get("uuid", UUID.class))
-                        .pull();
+                return new MongoDatabaseItem(database, "uuid", collection, doc.get("uuid", UUID.class), doc);
             } else {
                 return null;
             }
@@ -623,8 +1185,149 @@ public class ServerResourceManager {
             collection.insertOne(document);
 
             // create database item
-            return new MongoDatabaseItem(database, "uuid", collection, uuid)
-                    .pull();
+            return new MongoDatabaseItem(database, "uuid", collection, uuid, document);
+        });
+
+        pool.putQuery("ref_resource_uuid", DatabaseType.MONGO_DB, (query, database, values) -> {
+            // reference the document without fetching it
+            MongoCollection<Document> collection = mongoGetOrCreateResCollection(database.getDatabaseClient());
+            return new MongoDatabaseItem(database, "uuid", collection, values.getRaw("uuid"));
+        });
+
+        pool.putQuery("push_resources_bulk", DatabaseType.MONGO_DB, (query, database, values) -> {
+            // get collection
+            MongoCollection<Document> collection = mongoGetOrCreateResCollection(database.getDatabaseClient());
+            List<DatabaseItem> items = values.getRaw("items");
+
+            // collect upserts of changed items
+            List<WriteModel<Document>> writes = new ArrayList<>(items.size());
+            List<MongoDatabaseItem> written   = new ArrayList<>(items.size());
+            UpdateOptions options = new UpdateOptions().upsert(true);
+            for (DatabaseItem item : items) {
+                MongoDatabaseItem mongoItem = (MongoDatabaseItem) item;
+                Bson update = mongoItem.createUpdate();
+                if (update != null) {
+                    writes.add(new UpdateOneModel<>(mongoItem.createFilter(), update, options));
+                    written.add(mongoItem);
+                }
+            }
+
+            // execute in one round trip
+            if (!writes.isEmpty()) {
+                collection.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+                for (MongoDatabaseItem item : written)
+                    item.commitChanges();
+            }
+
+            return writes.size();
+        });
+
+        pool.putQuery("ensure_resource_indexes", DatabaseType.MONGO_DB, (query, database, values) -> {
+            // get collection
+            MongoCollection<Document> collection = mongoGetOrCreateResCollection(database.getDatabaseClient());
+            List<IndexModel> indexes = mongoCreateIndexModels(values.getRaw("base"), values.getRaw("types"));
+
+            // create one by one, so one failing
+            // index does not prevent the others
+            int created = 0;
+            for (IndexModel index : indexes) {
+                try {
+                    collection.createIndex(index.getKeys(), index.getOptions());
+                    created++;
+                } catch (Exception e) {
+                    LOGGER.err("Failed to create index " + index.getOptions().getName() + " on " + getCollectionName());
+                    e.printStackTrace(Logging.ERR);
+                }
+            }
+
+            return created;
+        });
+
+        /* MongoDB Async */
+
+        MongoAsyncResourceQueries.load(this, pool);
+
+        /* In-Memory */
+
+        pool.putQuery("find_resource_uuid", DatabaseType.IN_MEMORY, (query, database, values) -> {
+            InMemoryCollection collection = memoryGetOrCreateResCollection(database);
+            UUID uuid = values.get("uuid");
+            Map<String, Object> doc = collection.get(uuid);
+            return doc != null ? new InMemoryDatabaseItem(database, collection, uuid, doc) : null;
+        });
+
+        pool.putQuery("find_resources_uuids", DatabaseType.IN_MEMORY, (query, database, values) -> {
+            InMemoryCollection collection = memoryGetOrCreateResCollection(database);
+            List<UUID> uuids = values.getRaw("uuids");
+            List<DatabaseItem> items = new ArrayList<>(uuids.size());
+            for (UUID uuid : uuids) {
+                Map<String, Object> doc = collection.get(uuid);
+                if (doc != null)
+                    items.add(new InMemoryDatabaseItem(database, collection, uuid, doc));
+            }
+
+            return items;
+        });
+
+        pool.putQuery("find_resource_local", DatabaseType.IN_MEMORY, (query, database, values) -> {
+            InMemoryCollection collection = memoryGetOrCreateResCollection(database);
+            Map<String, Object> doc = collection.findFirst(Map.of(
+                    "localId", values.get("localId"),
+                    "type", values.get("typeHash")));
+            return doc != null ? new InMemoryDatabaseItem(database, collection, doc.get("uuid"), doc) : null;
+        });
+
+        pool.putQuery("find_resource_filter", DatabaseType.IN_MEMORY, (query, database, values) -> {
+            InMemoryCollection collection = memoryGetOrCreateResCollection(database);
+            Map<String, Object> filter = memoryToFilterEq(values.get("filter"));
+            filter.put("type", values.get("typeHash"));
+            Map<String, Object> doc = collection.findFirst(filter);
+            return doc != null ? new InMemoryDatabaseItem(database, collection, doc.get("uuid"), doc) : null;
+        });
+
+        pool.putQuery("create_get_resource_uuid", DatabaseType.IN_MEMORY, (query, database, values) -> {
+            InMemoryCollection collection = memoryGetOrCreateResCollection(database);
+            UUID uuid = values.getRaw("uuid");
+            Map<String, Object> doc = collection.update(uuid, Map.of(), true);
+            return new InMemoryDatabaseItem(database, collection, uuid, doc);
+        });
+
+        pool.putQuery("ref_resource_uuid", DatabaseType.IN_MEMORY, (query, database, values) -> {
+            InMemoryCollection collection = memoryGetOrCreateResCollection(database);
+            return new InMemoryDatabaseItem(database, collection, values.getRaw("uuid"));
+        });
+
+        pool.putQuery("ensure_resource_indexes", DatabaseType.IN_MEMORY, (query, database, values) -> {
+            // the base indexes are created with the collection,
+            // uniqueness is not enforced in memory
+            InMemoryCollection collection = memoryGetOrCreateResCollection(database);
+            List<ServerResourceType> types = values.getRaw("types");
+            int created = 0;
+            for (ServerResourceType<?> type : types) {
+                for (ServerResourceType.IndexedField field : type.getIndexedFields()) {
+                    if (field.unique())
+                        LOGGER.info("Unique index on '" + field.name() + "' of resource type " +
+                                type.getIdentifier() + " is not enforced in memory");
+                    collection.index(field.name());
+                    created++;
+                }
+            }
+
+            return created;
+        });
+
+        pool.putQuery("push_resources_bulk", DatabaseType.IN_MEMORY, (query, database, values) -> {
+            // push changed items
+            List<DatabaseItem> items = values.getRaw("items");
+            int written = 0;
+            for (DatabaseItem item : items) {
+                if (((InMemoryDatabaseItem) item).hasChanges()) {
+                    item.push();
+                    written++;
+                }
+            }
+
+            return written;
         });
 
     }
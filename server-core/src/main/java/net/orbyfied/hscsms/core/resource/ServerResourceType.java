@@ -13,12 +13,29 @@ import net.orbyfied.j8.util.logging.Logger;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InaccessibleObjectException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 public abstract class ServerResourceType<R extends ServerResource> {
 
+    /**
+     * A field of the resources of a type which
+     * is indexed in the database.
+     */
+    public record IndexedField(String name, boolean unique) { }
+
+    /**
+     * A field of the resources of a type by which
+     * loaded resources are indexed in memory.
+     */
+    public record LookupField<R extends ServerResource>(String name, Function<R, Object> getter) { }
+
     public static <R extends ServerResource> ServerResourceType<R> ofChronoIds(final Class<R> rClass,
                                                                                final Identifier id,
 
@@ -26,11 +43,14 @@ public abstract class ServerResourceType<R extends ServerResource> {
                                                                                final TriFunction<ServerResourceManager, DatabaseItem, R, ResourceLoadResult> loadR) {
         return new ServerResourceType<>(id, rClass) {
             @Override
+            @Deprecated
             public UUID createLocalID() {
-                return new UUID(
-                        System.currentTimeMillis() * /* type hash */ idHash,
-                        System.nanoTime()
-                );
+                throw new UnsupportedOperationException("time ordered IDs are generated by the resource manager");
+            }
+
+            @Override
+            public UUID createLocalID(ServerResourceManager manager) {
+                return manager.idGenerator().nextUUID();
             }
 
             @Override
@@ -78,6 +98,11 @@ public abstract class ServerResourceType<R extends ServerResource> {
     // the miscellaneous type properties
     final Values props = new Values();
 
+    // the fields indexed in the database
+    final List<IndexedField> indexedFields = new ArrayList<>();
+    // the fields loaded resources are indexed by
+    final List<LookupField<R>> lookupFields = new ArrayList<>();
+
     public ServerResourceType(Identifier id,
                               Class<R> resourceClass) {
         this.id     = id;
@@ -126,16 +151,73 @@ public abstract class ServerResourceType<R extends ServerResource> {
         return this;
     }
 
+    public List<IndexedField> getIndexedFields() {
+        return Collections.unmodifiableList(indexedFields);
+    }
+
+    /**
+     * Declares a field to be indexed in the database,
+     * so resources of this type can be found by it
+     * quickly. The index is created when the resource
+     * manager is set up, or when the type is registered.
+     * @param field The field name.
+     * @param unique If no two resources of this
+     *               type may have the same value.
+     * @return This.
+     */
+    public ServerResourceType<R> withIndex(String field, boolean unique) {
+        indexedFields.add(new IndexedField(field, unique));
+        return this;
+    }
+
+    public List<LookupField<R>> getLookupFields() {
+        return Collections.unmodifiableList(lookupFields);
+    }
+
+    /**
+     * Declares a field by which the loaded resources of
+     * this type are indexed in memory, so finding them by
+     * an equality filter on only that field doesn't query
+     * the database. The value must be unique among the
+     * resources of this type, and is indexed when a
+     * resource is loaded or saved.
+     * @see ResourceLookups
+     * @param field The field name, as saved in the database.
+     * @param getter The function getting the value
+     *               of the field from a resource.
+     * @return This.
+     */
+    public ServerResourceType<R> withLookup(String field, Function<R, Object> getter) {
+        lookupFields.add(new LookupField<>(field, getter));
+        return this;
+    }
+
     /* -------- Functional --------- */
 
     /**
      * Creates a new local ID. This ID should have
      * close to no possibility of colliding with
-     * another ID.
+     * another ID. Types with time ordered IDs don't
+     * support this, as their IDs are generated by
+     * the resource manager for its node.
+     * @see ServerResourceType#createLocalID(ServerResourceManager)
      * @return The local unique ID.
      */
     public abstract UUID createLocalID();
 
+    /**
+     * Creates a new local ID for a resource created
+     * by the manager. Types with time ordered IDs use
+     * the ID generator of the manager, which is unique
+     * to the node.
+     * @see ServerResourceManager#idGenerator()
+     * @param manager The resource manager.
+     * @return The local unique ID.
+     */
+    public UUID createLocalID(ServerResourceManager manager) {
+        return createLocalID();
+    }
+
     public R newInstanceInternal(UUID uuid, UUID localId) {
         try {
             if (constructor.getParameterCount() == 2)
@@ -148,6 +230,7 @@ public abstract class ServerResourceType<R extends ServerResource> {
         }
     }
 
+    @SuppressWarnings("unchecked")
     public R loadResourceLocal(ServerResourceManager manager,
                                UUID localId) {
         // find document
@@ -163,29 +246,70 @@ public abstract class ServerResourceType<R extends ServerResource> {
             // load data
             loadResourceSafe(manager, item, resource);
 
-            // add loaded
-            manager.addLoaded(resource);
-
-            // return
-            return resource;
+            // add loaded, returning the already
+            // registered instance if it was loaded
+            // concurrently
+            return (R) manager.addLoadedIfAbsent(resource);
         } else {
             return null;
         }
     }
 
+    /**
+     * Loads a resource using the local ID without blocking,
+     * constructing it when the database item is fetched.
+     * @see ServerResourceType#loadResourceLocal(ServerResourceManager, UUID)
+     * @param manager The resource manager.
+     * @param localId The local ID.
+     * @return The future of the resource, completing
+     *         with null if absent.
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<R> loadResourceLocalAsync(ServerResourceManager manager,
+                                                       UUID localId) {
+        return findDatabaseResourceLocalAsync(manager, manager.requireDatabase(), localId).thenApply(item -> {
+            if (item == null)
+                return null;
+
+            // construct instance and load data
+            R resource = newInstanceInternal(item.get("uuid", UUID.class), localId);
+            loadResourceSafe(manager, item, resource);
+
+            // add loaded, returning the already
+            // registered instance if it was loaded
+            // concurrently
+            return (R) manager.addLoadedIfAbsent(resource);
+        });
+    }
+
     @SuppressWarnings("unchecked")
     public ServerResourceType<R> saveResource(ServerResourceManager manager,
                                               ServerResource resource) {
-        // find document
-        DatabaseItem item = manager.findOrCreateDatabaseResource(resource.universalID());
-
-        // set properties
-        item.set("uuid",    resource.universalID());
-        item.set("localId", resource.localID());
-        item.set("type",    getIdentifierHash());
+        boolean saved;
+        resource.saveLock.lock();
+        try {
+            // reuse the item last stored in, so
+            // only changed values are written
+            DatabaseItem item = manager.storedItem(resource);
+            if (item == null)
+                item = manager.findOrCreateDatabaseResource(resource.universalID());
+
+            // set properties
+            item.set("uuid",    resource.universalID());
+            item.set("localId", resource.localID());
+            item.set("type",    getIdentifierHash());
+
+            // save data
+            saved = saveResourceSafe(manager, item, (R) resource).success();
+            if (saved)
+                resource.storedItem = item;
+        } finally {
+            resource.saveLock.unlock();
+        }
 
-        // save data
-        saveResourceSafe(manager, item, (R) resource);
+        // index the saved values
+        if (saved)
+            manager.registry().reindex(resource);
 
         // return
         return this;
@@ -223,6 +347,11 @@ public abstract class ServerResourceType<R extends ServerResource> {
     public DatabaseItem findDatabaseResourceLocal(ServerResourceManager manager,
                                                   Database database,
                                                   UUID localId) {
+        // use the prepared query of the
+        // resource database if possible
+        if (database == manager.database())
+            return manager.queries().findLocal().sync(localId, this.getIdentifierHash());
+
         QueryPool pool = manager.getLocalQueryPool();
         return pool.current(database)
                 .querySync("find_resource_local", new Values()
@@ -231,6 +360,28 @@ public abstract class ServerResourceType<R extends ServerResource> {
                 );
     }
 
+    /**
+     * Finds the database item of the resource by local ID
+     * asynchronously, completing on the callback of the
+     * database driver if it is non-blocking.
+     * @see ServerResourceType#findDatabaseResourceLocal(ServerResourceManager, Database, UUID)
+     */
+    public CompletableFuture<DatabaseItem> findDatabaseResourceLocalAsync(ServerResourceManager manager,
+                                                                          Database database,
+                                                                          UUID localId) {
+        // use the prepared query of the
+        // resource database if possible
+        if (database == manager.database())
+            return manager.queries().findLocal().async(localId, this.getIdentifierHash());
+
+        QueryPool pool = manager.getLocalQueryPool();
+        return pool.current(database)
+                .queryAsync("find_resource_local", new Values()
+                        .setRaw("localId", localId)
+                        .setRaw("typeHash", this.getIdentifierHash())
+                );
+    }
+
     /**
      * Saves a resource to the database. This does not
      * push the data into the database, that must be
@@ -285,7 +436,41 @@ public abstract class ServerResourceType<R extends ServerResource> {
     }
 
     /**
-     * Safe wrapper.
+     * Writes the resource, including its identifiers,
+     * into the database item without pushing it.
+     * Used to push many resources at once.
+     * @param manager The resource manager.
+     * @param dbItem The database item to write to.
+     * @param resource The resource to write.
+     * @return Result.
+     */
+    @SuppressWarnings("unchecked")
+    public ResourceSaveResult writeResourceSafe(ServerResourceManager manager,
+                                                DatabaseItem dbItem,
+                                                ServerResource resource) {
+        final Logger logger = ServerResourceManager.LOGGER;
+
+        try {
+            // set properties
+            dbItem.set("uuid",    resource.universalID());
+            dbItem.set("localId", resource.localID());
+            dbItem.set("type",    getIdentifierHash());
+
+            // call save
+            return saveResource(manager, dbItem, (R) resource);
+        } catch (Exception e) {
+            logger.err("Error while writing resource " + resource.universalID() + " of type " +
+                    resource.type().id);
+            e.printStackTrace(Logging.ERR);
+            return new ResourceSaveResult(false, e);
+        }
+    }
+
+    /**
+     * Safe wrapper. The item is not pulled, it
+     * is expected to hold the data already, like
+     * the items returned by the find queries. The
+     * item is kept to be reused when saving.
      * @see ServerResourceType#loadResource(ServerResourceManager, DatabaseItem, ServerResource)
      */
     public ResourceLoadResult loadResourceSafe(ServerResourceManager manager,
@@ -294,11 +479,11 @@ public abstract class ServerResourceType<R extends ServerResource> {
         final Logger logger = ServerResourceManager.LOGGER;
 
         try {
-            // pull data
-            dbItem.pull();
-
-            // call load and return
-            return loadResource(manager, dbItem, resource);
+            // call load and keep the item
+            ResourceLoadResult result = loadResource(manager, dbItem, resource);
+            if (result.success())
+                resource.storedItem = dbItem;
+            return result;
         } catch (Exception e) {
             logger.err("Error while loading resource " + resource.universalID() + " of type " +
                     resource.type().id);
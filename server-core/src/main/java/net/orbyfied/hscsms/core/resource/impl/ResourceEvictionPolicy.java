@@ -0,0 +1,158 @@
+package net.orbyfied.hscsms.core.resource.impl;
+
+import net.orbyfied.hscsms.core.resource.ServerResource;
+import net.orbyfied.hscsms.util.Values;
+
+import java.util.*;
+
+/**
+ * Segmented LRU policy deciding when idle resources,
+ * which are loaded but not acquired by any handle,
+ * are evicted. Resources become idle in the probation
+ * segment, and are promoted to the protected segment
+ * once they are reused while idle. When more resources
+ * are idle than allowed, the least recently idle ones
+ * of the probation segment are evicted first. Resources
+ * idle for longer than the idle TTL are always evicted.
+ */
+public class ResourceEvictionPolicy {
+
+    // an idle resource
+    static class Entry {
+        final ServerResource resource;
+        final long idleSince;
+
+        Entry(ServerResource resource, long idleSince) {
+            this.resource  = resource;
+            this.idleSince = idleSince;
+        }
+    }
+
+    // the maximum amount of idle resources,
+    // zero to evict resources once idle
+    int maxIdle = 10000;
+    // the time in seconds after which
+    // an idle resource is evicted
+    int idleTtl = 300;
+    // the share of the protected segment
+    double protectedRatio = 0.8;
+
+    // the segments, in the order resources became idle
+    final LinkedHashMap<UUID, Entry> probation = new LinkedHashMap<>();
+    final LinkedHashMap<UUID, Entry> protect   = new LinkedHashMap<>();
+    // the resources reused while idle, which
+    // are protected when they become idle again
+    final Set<UUID> reused = new HashSet<>();
+
+    /**
+     * Configures this policy from the values.
+     * @param config The configuration section.
+     * @return This.
+     */
+    public synchronized ResourceEvictionPolicy configure(Values config) {
+        if (config == null)
+            return this;
+        maxIdle        = Math.max(0, config.getOrDefault("max-idle", maxIdle));
+        idleTtl        = Math.max(0, config.getOrDefault("idle-ttl", idleTtl));
+        protectedRatio = config.getOrDefault("protected-ratio", (Number) protectedRatio).doubleValue();
+        return this;
+    }
+
+    public synchronized int getIdleCount() {
+        return probation.size() + protect.size();
+    }
+
+    /**
+     * Marks the resource as idle.
+     * @param resource The resource.
+     * @param now The current time in milliseconds.
+     * @return The resources to evict, which may
+     *         include the given resource.
+     */
+    public synchronized List<ServerResource> idle(ServerResource resource, long now) {
+        if (maxIdle <= 0)
+            return List.of(resource);
+
+        // put in segment
+        UUID uuid = resource.universalID();
+        Entry entry = new Entry(resource, now);
+        probation.remove(uuid);
+        protect.remove(uuid);
+        if (reused.remove(uuid)) {
+            protect.put(uuid, entry);
+
+            // demote overflow to probation
+            int maxProtected = (int) (maxIdle * protectedRatio);
+            while (protect.size() > maxProtected) {
+                Entry demoted = poll(protect);
+                probation.put(demoted.resource.universalID(), demoted);
+            }
+        } else {
+            probation.put(uuid, entry);
+        }
+
+        // evict overflow, probation first
+        List<ServerResource> evicted = new ArrayList<>();
+        while (probation.size() + protect.size() > maxIdle)
+            evicted.add(poll(!probation.isEmpty() ? probation : protect).resource);
+        return evicted;
+    }
+
+    /**
+     * Marks the resource as used again. If it
+     * was idle it will be protected when it
+     * becomes idle again.
+     * @param resource The resource.
+     */
+    public synchronized void reuse(ServerResource resource) {
+        UUID uuid = resource.universalID();
+        if (probation.remove(uuid) != null | protect.remove(uuid) != null)
+            reused.add(uuid);
+    }
+
+    /**
+     * Stops tracking the resource.
+     * @param resource The resource.
+     */
+    public synchronized void remove(ServerResource resource) {
+        UUID uuid = resource.universalID();
+        probation.remove(uuid);
+        protect.remove(uuid);
+        reused.remove(uuid);
+    }
+
+    /**
+     * Removes the resources idle for
+     * longer than the idle TTL.
+     * @param now The current time in milliseconds.
+     * @return The resources to evict.
+     */
+    public synchronized List<ServerResource> expire(long now) {
+        List<ServerResource> evicted = new ArrayList<>();
+        long deadline = now - idleTtl * 1000L;
+        expire(probation, deadline, evicted);
+        expire(protect, deadline, evicted);
+        return evicted;
+    }
+
+    // removes the expired entries of the segment
+    private static void expire(LinkedHashMap<UUID, Entry> segment, long deadline, List<ServerResource> evicted) {
+        Iterator<Entry> iterator = segment.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.idleSince <= deadline) {
+                evicted.add(entry.resource);
+                iterator.remove();
+            }
+        }
+    }
+
+    // removes the least recently idle entry
+    private static Entry poll(LinkedHashMap<UUID, Entry> segment) {
+        Iterator<Entry> iterator = segment.values().iterator();
+        Entry entry = iterator.next();
+        iterator.remove();
+        return entry;
+    }
+
+}
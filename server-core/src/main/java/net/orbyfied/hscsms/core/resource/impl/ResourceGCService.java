@@ -6,17 +6,17 @@ import net.orbyfied.hscsms.core.resource.ServerResourceManager;
 import net.orbyfied.hscsms.core.resource.event.ResourceHandleAcquireEvent;
 import net.orbyfied.hscsms.core.resource.event.ResourceHandleReleaseEvent;
 import net.orbyfied.hscsms.core.resource.event.ResourceUnloadEvent;
-import net.orbyfied.hscsms.util.data.IntBox;
+import net.orbyfied.hscsms.service.Logging;
+import net.orbyfied.hscsms.util.Values;
 import net.orbyfied.hscsms.util.worker.SafeWorker;
 import net.orbyfied.j8.event.handler.BasicHandler;
 import net.orbyfied.j8.util.functional.ThrowableRunnable;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 public class ResourceGCService extends AbstractResourceService {
 
@@ -28,31 +28,93 @@ public class ResourceGCService extends AbstractResourceService {
      */
     public static final Object PERSISTENT = new Object();
 
+    // the interval in milliseconds at which
+    // expired idle resources are evicted
+    static final long SWEEP_INTERVAL = 1000;
+
+    // the capacity of the release queue
+    static final int QUEUE_CAPACITY = 1 << 16;
+
+    // a release of the last usage of a resource
+    record Release(ServerResource resource, long time) { }
+
     //////////////////////////////////////////////////////
 
     // if the garbage collector should automatically track
     // resource usages and act on them
     boolean automate = true;
-
-    // the internal map for tracking which
-    // resources are currently being used
-    final ConcurrentHashMap<ServerResource, IntBox> usages = new ConcurrentHashMap<>();
-
-    // the queue of resources to be unloaded async
-    final Queue<ServerResource> queue = new ArrayDeque<>();
+    // if usages are tracked by direct calls from the
+    // manager instead of the handle events
+    boolean direct = true;
+
+    // the policy deciding when idle resources are evicted
+    final ResourceEvictionPolicy eviction = new ResourceEvictionPolicy();
+
+    // the time in milliseconds a released resource
+    // waits before it is idled, so it can be reacquired
+    int gracePeriod = 1000;
+    // the maximum amount of releases handled at once
+    int maxBatchSize = 500;
+
+    // the queue of releases, filled by the
+    // releasing threads and drained by the worker
+    final BlockingQueue<Release> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    // the releases idled by the releasing
+    // thread because the queue was full
+    final LongAdder overflowed = new LongAdder();
     // the queue worker
-    final SafeWorker    worker  = new SafeWorker();
-    final AtomicBoolean waiting = new AtomicBoolean(false);
+    final SafeWorker worker = new SafeWorker("ResourceGC");
 
     public ResourceGCService(ServerResourceManager manager) {
         super(manager);
         this.worker.withTarget(new WorkerTarget());
+        this.worker.setDaemon(true);
     }
 
     public SafeWorker worker() {
         return worker;
     }
 
+    public ResourceEvictionPolicy eviction() {
+        return eviction;
+    }
+
+    /**
+     * Configures this service from the values.
+     * @param config The configuration section.
+     * @return This.
+     */
+    public ResourceGCService configure(Values config) {
+        if (config == null)
+            return this;
+        gracePeriod  = Math.max(0, config.getOrDefault("grace-period", gracePeriod));
+        maxBatchSize = Math.max(1, config.getOrDefault("max-batch-size", maxBatchSize));
+        direct       = config.getOrDefault("direct-tracking", direct);
+        return this;
+    }
+
+    public boolean isAutomated() {
+        return automate;
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Get the amount of releases which were idled
+     * by the releasing thread because the queue
+     * was full, skipping the grace period.
+     * @return The count.
+     */
+    public long getOverflowedCount() {
+        return overflowed.sum();
+    }
+
     @Override
     public void added() {
         super.added();
@@ -62,7 +124,15 @@ public class ResourceGCService extends AbstractResourceService {
     @Override
     public void removed() {
         super.removed();
-        worker.terminate();
+
+        // stop worker, it finishes the current
+        // batch, and handle the remaining releases
+        worker.setActive(false);
+        worker.await();
+
+        List<Release> batch = new ArrayList<>(queue.size());
+        queue.drainTo(batch);
+        handleReleases(batch);
     }
 
     /* ----- Manual Handling ---- */
@@ -77,20 +147,61 @@ public class ResourceGCService extends AbstractResourceService {
         manager.unloadResource(resource);
     }
 
+    /**
+     * Called when a resource is no longer acquired.
+     * The resource is saved but stays loaded until
+     * the eviction policy evicts it.
+     * @param resource The resource.
+     */
+    public void idleImmediate(ServerResource resource) {
+        // save resource if persistent
+        if (resource.type().properties().getOrDefaultRaw(PERSISTENT, true)) {
+            manager.saveResourceLater(resource);
+        }
+
+        // evict overflowing resources
+        for (ServerResource evicted : eviction.idle(resource, System.currentTimeMillis()))
+            evictImmediate(evicted);
+    }
+
+    /**
+     * Unloads an idle resource, unless
+     * it has been acquired again. The resource
+     * is claimed first, so it can not be acquired
+     * while it is being unloaded.
+     * @param resource The resource.
+     */
+    public void evictImmediate(ServerResource resource) {
+        if (!resource.tryEvict())
+            return;
+
+        try {
+            manager.unloadResource(resource);
+        } catch (RuntimeException | Error e) {
+            // it is still loaded, allow
+            // it to be acquired again
+            resource.cancelEvict();
+            throw e;
+        }
+    }
+
     /**
      * Forces a resource to be marked acquired.
      * Use with caution, if not released manually
      * it will not be automatically disposed.
      * @param resource The resource.
+     * @return False if the resource is being evicted,
+     *         so it must be loaded again.
      */
-    public void acquireImmediate(ServerResource resource) {
-        // increment usage
-        IntBox u = usages.get(resource);
-        if (u == null) {
-            u = new IntBox();
-            usages.put(resource, u);
-        }
-        u.value++;
+    public boolean acquireImmediate(ServerResource resource) {
+        // increment usage, and stop
+        // idling if it was unused
+        int count = resource.acquireUsage();
+        if (count == -1)
+            return false;
+        if (count == 1)
+            eviction.reuse(resource);
+        return true;
     }
 
     /**
@@ -98,23 +209,62 @@ public class ResourceGCService extends AbstractResourceService {
      * @param resource The resource.
      */
     public void releaseImmediate(ServerResource resource) {
-        // get counter from map
-        IntBox u = usages.get(resource);
-        boolean dispose = false;
-        if (u != null) {
-            // decrement usage
-            u.value--;
-            // check if we should dispose
-            if (u.value <= 0)
-                dispose = true;
-        } else {
-            // always dispose if its not in the map
-            dispose = true;
+        // decrement usage, idle if unused
+        if (resource.releaseUsage() == 0)
+            queueRelease(resource);
+    }
+
+    // queues the release to be handled by the worker,
+    // if the queue is full it is idled immediately, which
+    // only schedules the save so the caller never blocks
+    private void queueRelease(ServerResource resource) {
+        if (!worker.isAlive()) {
+            idleImmediate(resource);
+            return;
         }
 
-        // dispose if needed
-        if (dispose)
-            disposeImmediate(resource);
+        if (!queue.offer(new Release(resource, System.currentTimeMillis()))) {
+            overflowed.increment();
+            idleImmediate(resource);
+        }
+    }
+
+    /**
+     * Idles the released resources which were not
+     * reacquired, saving them in one bulk write,
+     * and unloads the resources evicted by that.
+     * @param batch The releases.
+     */
+    void handleReleases(List<Release> batch) {
+        if (batch.isEmpty())
+            return;
+        long now = System.currentTimeMillis();
+
+        // idle released resources
+        Set<ServerResource> handled = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<ServerResource> save   = new ArrayList<>();
+        List<ServerResource> evict  = new ArrayList<>();
+        for (Release release : batch) {
+            ServerResource resource = release.resource();
+            if (!handled.add(resource) || resource.usages() > 0 || !manager.isLoaded(resource))
+                continue;
+
+            if (resource.type().properties().getOrDefaultRaw(PERSISTENT, true))
+                save.add(resource);
+            evict.addAll(eviction.idle(resource, now));
+        }
+
+        // save in bulk
+        try {
+            manager.saveResources(save);
+        } catch (Exception e) {
+            ServerResourceManager.LOGGER.err("Error while saving " + save.size() + " released resources");
+            e.printStackTrace(Logging.ERR);
+        }
+
+        // unload evicted resources
+        for (ServerResource resource : evict)
+            evictImmediate(resource);
     }
 
     /* ----- Automatic Handling ----- */
@@ -122,13 +272,14 @@ public class ResourceGCService extends AbstractResourceService {
     @BasicHandler
     void handleUnloaded(ResourceUnloadEvent event) {
         // remove from registries
-        usages.remove(event.getResource());
+        eviction.remove(event.getResource());
     }
 
     @BasicHandler
     void handleReleased(ResourceHandleReleaseEvent event) {
-        // check automated
-        if (!automate)
+        // check automated and not
+        // already tracked directly
+        if (!automate || direct)
             return;
 
         ServerResource resource = event.getHandle().getOrNull();
@@ -139,8 +290,9 @@ public class ResourceGCService extends AbstractResourceService {
 
     @BasicHandler
     void handleAcquired(ResourceHandleAcquireEvent event) {
-        // check automated
-        if (!automate)
+        // check automated and not
+        // already tracked directly
+        if (!automate || direct)
             return;
 
         ServerResource resource = event.getHandle().getOrNull();
@@ -155,28 +307,38 @@ public class ResourceGCService extends AbstractResourceService {
 
         @Override
         public void run() throws Throwable {
+            List<Release> batch = new ArrayList<>(maxBatchSize);
+
             // while active
             while (worker.shouldRun()) {
-                // wait for content
-                if (queue.isEmpty()) {
-                    synchronized (queue) {
-                        waiting.set(true);
-                        queue.wait();
+                try {
+                    // wait for releases or
+                    // the next sweep
+                    Release first = queue.poll(SWEEP_INTERVAL, TimeUnit.MILLISECONDS);
+                    if (first != null) {
+                        batch.add(first);
+                        queue.drainTo(batch, maxBatchSize - 1);
+
+                        // wait for the grace period
+                        // of the latest release
+                        long wait = batch.get(batch.size() - 1).time() + gracePeriod - System.currentTimeMillis();
+                        if (wait > 0)
+                            Thread.sleep(wait);
                     }
-
-                    waiting.set(false);
+                } catch (InterruptedException e) {
+                    // handle the current batch
+                    // and stop
+                    handleReleases(batch);
+                    return;
                 }
 
-                // handle all resources in queue
-                List<ServerResource> resources = new ArrayList<>(queue.size());
-                synchronized (queue) {
-                    while (!queue.isEmpty())
-                        resources.add(queue.poll());
-                }
+                // handle the releases
+                handleReleases(batch);
+                batch.clear();
 
-                for (ServerResource resource : resources) {
-                    disposeImmediate(resource);
-                }
+                // evict expired idle resources
+                for (ServerResource resource : eviction.expire(System.currentTimeMillis()))
+                    evictImmediate(resource);
             }
         }
 
@@ -0,0 +1,227 @@
+package net.orbyfied.hscsms.core.resource.impl;
+
+import net.orbyfied.hscsms.core.resource.AbstractResourceService;
+import net.orbyfied.hscsms.core.resource.ServerResource;
+import net.orbyfied.hscsms.core.resource.ServerResourceManager;
+import net.orbyfied.hscsms.service.Logging;
+import net.orbyfied.hscsms.util.Values;
+import net.orbyfied.hscsms.util.worker.SafeWorker;
+import net.orbyfied.j8.util.functional.ThrowableRunnable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Saves resources in the background. Saves of the
+ * same resource are coalesced until the next flush,
+ * which writes all dirty resources in bulk on a
+ * dedicated worker. Producers are blocked once too
+ * many saves are pending.
+ */
+public class ResourceWriteBehindService extends AbstractResourceService {
+
+    // the resources waiting to be saved
+    final ConcurrentHashMap<UUID, ServerResource> dirty = new ConcurrentHashMap<>();
+    // the resources currently being written
+    final Set<UUID> writing = ConcurrentHashMap.newKeySet();
+    // held while flushing
+    final Object flushLock = new Object();
+
+    // the interval between flushes in milliseconds
+    int flushInterval = 250;
+    // the maximum amount of resources saved in one bulk write
+    int maxBatchSize = 500;
+    // the maximum amount of pending saves before
+    // producers have to wait for a flush
+    int maxPending = 10000;
+
+    // the flush worker
+    final SafeWorker worker = new SafeWorker("ResourceWriteBehind");
+    // the lock producers wait on for capacity
+    final Object capacityLock = new Object();
+
+    public ResourceWriteBehindService(ServerResourceManager manager) {
+        super(manager);
+        this.worker.withTarget(new WorkerTarget());
+        this.worker.setDaemon(true);
+    }
+
+    public SafeWorker worker() {
+        return worker;
+    }
+
+    /**
+     * Configures this service from the values.
+     * @param config The configuration section.
+     * @return This.
+     */
+    public ResourceWriteBehindService configure(Values config) {
+        if (config == null)
+            return this;
+        flushInterval = config.getOrDefault("flush-interval", flushInterval);
+        maxBatchSize  = Math.max(1, config.getOrDefault("max-batch-size", maxBatchSize));
+        maxPending    = Math.max(maxBatchSize, config.getOrDefault("max-pending", maxPending));
+        return this;
+    }
+
+    public int getPendingCount() {
+        return dirty.size();
+    }
+
+    public boolean isPending(UUID uuid) {
+        return dirty.containsKey(uuid) || writing.contains(uuid);
+    }
+
+    @Override
+    public void added() {
+        super.added();
+        worker.commence();
+    }
+
+    @Override
+    public void removed() {
+        super.removed();
+
+        // stop worker and write
+        // the remaining resources
+        worker.setActive(false);
+        LockSupport.unpark(worker);
+        worker.await();
+        flush();
+    }
+
+    /**
+     * Marks the resource to be saved with the next
+     * flush. If it is already pending this does nothing.
+     * @param resource The resource.
+     */
+    public void markDirty(ServerResource resource) {
+        UUID uuid = resource.universalID();
+
+        // coalesce with pending save
+        if (dirty.replace(uuid, resource) != null)
+            return;
+
+        // wait for capacity
+        if (dirty.size() >= maxPending && Thread.currentThread() != worker)
+            awaitCapacity();
+
+        // flush early if a batch is full
+        dirty.put(uuid, resource);
+        if (dirty.size() >= maxBatchSize)
+            LockSupport.unpark(worker);
+    }
+
+    // blocks until the worker flushed
+    private void awaitCapacity() {
+        if (!worker.shouldRun())
+            return;
+        synchronized (capacityLock) {
+            while (dirty.size() >= maxPending && worker.shouldRun()) {
+                LockSupport.unpark(worker);
+                try {
+                    capacityLock.wait(flushInterval);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves all dirty resources synchronously,
+     * in batches of at most the maximum batch size.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            // snapshot the keys, so requeued
+            // resources are not retried immediately
+            List<UUID> uuids = new ArrayList<>(dirty.keySet());
+            List<ServerResource> batch = new ArrayList<>(Math.min(maxBatchSize, uuids.size()));
+            for (UUID uuid : uuids) {
+                writing.add(uuid);
+                ServerResource resource = dirty.remove(uuid);
+                if (resource == null) {
+                    writing.remove(uuid);
+                    continue;
+                }
+
+                batch.add(resource);
+                if (batch.size() >= maxBatchSize) {
+                    saveBatch(batch);
+                    batch = new ArrayList<>(maxBatchSize);
+                }
+            }
+
+            if (!batch.isEmpty())
+                saveBatch(batch);
+        }
+    }
+
+    /**
+     * Saves the resource synchronously if its save is
+     * pending, or waits for it if it is being written.
+     * Called before a resource is unloaded, so it is
+     * not loaded again before its changes are stored.
+     * @param resource The resource.
+     */
+    public void flush(ServerResource resource) {
+        UUID uuid = resource.universalID();
+        ServerResource pending = dirty.remove(uuid);
+        if (pending != null) {
+            saveBatch(List.of(pending));
+        } else if (writing.contains(uuid)) {
+            synchronized (flushLock) { /* wait for the flush */ }
+        }
+    }
+
+    // saves the batch, requeueing
+    // the resources if it failed
+    private void saveBatch(List<ServerResource> batch) {
+        try {
+            manager.saveResources(batch);
+        } catch (Exception e) {
+            ServerResourceManager.LOGGER.err("Error while saving " + batch.size() + " resources, requeueing");
+            e.printStackTrace(Logging.ERR);
+
+            // dont overwrite newer saves
+            for (ServerResource resource : batch)
+                dirty.putIfAbsent(resource.universalID(), resource);
+        } finally {
+            for (ServerResource resource : batch)
+                writing.remove(resource.universalID());
+        }
+    }
+
+    /* ------ Worker ------ */
+
+    class WorkerTarget implements ThrowableRunnable {
+
+        @Override
+        public void run() throws Throwable {
+            // while active
+            while (worker.shouldRun()) {
+                // wait for the interval or
+                // until a batch is full
+                if (dirty.size() < maxBatchSize)
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushInterval));
+
+                // write dirty resources
+                flush();
+
+                // wake up waiting producers
+                synchronized (capacityLock) {
+                    capacityLock.notifyAll();
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,67 @@
+package net.orbyfied.hscsms.core.resource.impl;
+
+import net.orbyfied.hscsms.core.resource.ResourceIdGenerator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time ordered IDs made of the milliseconds
+ * since {@link SnowflakeIdGenerator#EPOCH}, the node ID
+ * and a sequence number within the millisecond. When
+ * the sequence runs out, or the clock goes backwards,
+ * the timestamp is advanced past the clock instead of
+ * waiting, so generation is lock free and never blocks.
+ */
+public class SnowflakeIdGenerator implements ResourceIdGenerator {
+
+    // the epoch of the timestamps, 2022-01-01 UTC
+    public static final long EPOCH = 1640995200000L;
+
+    // the bit layout
+    public static final int NODE_BITS     = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE      = (1 << NODE_BITS) - 1;
+
+    static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    // the node ID
+    final long node;
+    // the last timestamp and sequence, packed
+    // like the ID but without the node ID
+    final AtomicLong last = new AtomicLong();
+
+    public SnowflakeIdGenerator(int node) {
+        if (node < 0 || node > MAX_NODE)
+            throw new IllegalArgumentException("node ID " + node + " out of range 0-" + MAX_NODE);
+        this.node = node;
+    }
+
+    public int getNode() {
+        return (int) node;
+    }
+
+    @Override
+    public long nextId() {
+        long prev, next;
+        do {
+            prev = last.get();
+            long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+            // take the next sequence if the clock
+            // did not advance past the last ID
+            next = now > prev ? now : prev + 1;
+        } while (!last.compareAndSet(prev, next));
+
+        long time = next >>> SEQUENCE_BITS;
+        return (time << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+    }
+
+    /**
+     * Get the time in milliseconds an ID was generated at.
+     * @param id The ID.
+     * @return The time in epoch milliseconds.
+     */
+    public static long getTime(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+}
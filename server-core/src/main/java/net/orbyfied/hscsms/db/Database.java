@@ -39,6 +39,10 @@ public abstract class Database {
         return name;
     }
 
+    public DatabaseMetrics metrics() {
+        return manager.metrics(name);
+    }
+
     public void login(Login login) {
         type.login(this, login);
     }
@@ -9,6 +9,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 
@@ -28,6 +31,9 @@ public class DatabaseManager {
     final ArrayList<DatabaseType<Database>>           dbt = new ArrayList<>();
     final HashMap<Identifier, DatabaseType<Database>> dbtById = new HashMap<>();
 
+    // the metrics by database name
+    final ConcurrentHashMap<String, DatabaseMetrics> metricsByName = new ConcurrentHashMap<>();
+
     // core/server reference
     final Server server;
 
@@ -36,6 +42,29 @@ public class DatabaseManager {
 
         // initialize default types
         addType(DatabaseType.MONGO_DB);
+        addType(DatabaseType.MONGO_DB_ASYNC);
+        addType(DatabaseType.IN_MEMORY);
+    }
+
+    /**
+     * Get the executor of blocking queries.
+     * @return The executor.
+     */
+    public Executor executor() {
+        return server != null ? server.services().ioExecutor() : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Get or create the metrics of the database.
+     * @param name The database name.
+     * @return The metrics.
+     */
+    public DatabaseMetrics metrics(String name) {
+        return metricsByName.computeIfAbsent(name, DatabaseMetrics::new);
+    }
+
+    public List<DatabaseMetrics> metrics() {
+        return new ArrayList<>(metricsByName.values());
     }
 
     public List<Database> databases() {
@@ -0,0 +1,140 @@
+package net.orbyfied.hscsms.db;
+
+import net.orbyfied.hscsms.util.data.LatencyHistogram;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of the commands and connections of
+ * a database, recorded by the database type, like
+ * by listeners attached to the database driver.
+ * @see DatabaseManager#metrics(String)
+ */
+public class DatabaseMetrics {
+
+    // the database name
+    final String name;
+
+    // the command latencies, in total and by command
+    final LatencyHistogram commandLatency = new LatencyHistogram();
+    final ConcurrentHashMap<String, LatencyHistogram> commandLatencyByName = new ConcurrentHashMap<>();
+    // the failed commands
+    final LongAdder commandsFailed = new LongAdder();
+
+    // the open connections of the pool
+    final AtomicInteger connections = new AtomicInteger();
+    // the connections checked out of the pool
+    final AtomicInteger connectionsInUse = new AtomicInteger();
+    // the threads waiting for a connection
+    final AtomicInteger waiting = new AtomicInteger();
+    // the time waited for a connection, not
+    // recorded for the asynchronous driver
+    final LatencyHistogram checkOutWait = new LatencyHistogram();
+    // the failed check outs, like on timeouts
+    final LongAdder checkOutsFailed = new LongAdder();
+
+    public DatabaseMetrics(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /* ---- Recording ---- */
+
+    /**
+     * Records a completed command.
+     * @param command The command name.
+     * @param nanos The duration in nanoseconds.
+     * @param success If it succeeded.
+     */
+    public void recordCommand(String command, long nanos, boolean success) {
+        commandLatency.record(nanos);
+        commandLatencyByName.computeIfAbsent(command, c -> new LatencyHistogram()).record(nanos);
+        if (!success)
+            commandsFailed.increment();
+    }
+
+    public void connectionOpened() {
+        connections.incrementAndGet();
+    }
+
+    public void connectionClosed() {
+        connections.decrementAndGet();
+    }
+
+    public void checkOutStarted() {
+        waiting.incrementAndGet();
+    }
+
+    /**
+     * Records a connection checked out of the pool.
+     * @param waitNanos The time waited in nanoseconds,
+     *                  or -1 if unknown.
+     */
+    public void checkedOut(long waitNanos) {
+        waiting.decrementAndGet();
+        connectionsInUse.incrementAndGet();
+        if (waitNanos >= 0)
+            checkOutWait.record(waitNanos);
+    }
+
+    public void checkOutFailed() {
+        waiting.decrementAndGet();
+        checkOutsFailed.increment();
+    }
+
+    public void checkedIn() {
+        connectionsInUse.decrementAndGet();
+    }
+
+    /* ---- Metrics ---- */
+
+    public LatencyHistogram getCommandLatency() {
+        return commandLatency;
+    }
+
+    public Map<String, LatencyHistogram> getCommandLatencyByName() {
+        return Collections.unmodifiableMap(commandLatencyByName);
+    }
+
+    public long getCommandsFailed() {
+        return commandsFailed.sum();
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    public int getConnectionsInUse() {
+        return connectionsInUse.get();
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    public LatencyHistogram getCheckOutWait() {
+        return checkOutWait;
+    }
+
+    public long getCheckOutsFailed() {
+        return checkOutsFailed.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "DatabaseMetrics(" + name + ") { connections : " + getConnections() +
+                ", in use : " + getConnectionsInUse() +
+                ", waiting : " + getWaiting() +
+                ", commands : " + commandLatency +
+                ", failed : " + getCommandsFailed() +
+                ", check out wait : " + checkOutWait + " }";
+    }
+
+}
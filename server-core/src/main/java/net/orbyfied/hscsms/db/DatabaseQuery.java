@@ -4,25 +4,48 @@ import net.orbyfied.hscsms.util.Values;
 import net.orbyfied.j8.util.functional.TriFunction;
 
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
 
 public class DatabaseQuery<R, D extends Database> {
 
-    Executor executor = Executors.newFixedThreadPool(2);
+    /**
+     * Creates a query which is executed asynchronously
+     * by the database driver, without blocking a thread.
+     * Executing it synchronously waits for it.
+     * @param op The operation name.
+     * @param type The database type.
+     * @param func The function starting the query.
+     * @return The query.
+     */
+    public static <R, D extends Database> DatabaseQuery<R, D> ofAsync(String op,
+                                                                    DatabaseType<D> type,
+                                                                    TriFunction<DatabaseQuery<R, D>, D, Values, CompletableFuture<R>> func) {
+        return new DatabaseQuery<>(op, type, null, func);
+    }
 
     ////////////////////////////////////////////
 
     final String op;
     final DatabaseType<D> type;
     final TriFunction<DatabaseQuery<R, D>, D, Values, R> func;
+    // the asynchronous function, or null
+    // if executed on the executor
+    final TriFunction<DatabaseQuery<R, D>, D, Values, CompletableFuture<R>> asyncFunc;
 
     public DatabaseQuery(String op,
                          DatabaseType<D> type,
                          TriFunction<DatabaseQuery<R, D>, D, Values, R> func) {
-        this.op   = op;
-        this.type = type;
-        this.func = func;
+        this(op, type, func, null);
+    }
+
+    public DatabaseQuery(String op,
+                         DatabaseType<D> type,
+                         TriFunction<DatabaseQuery<R, D>, D, Values, R> func,
+                         TriFunction<DatabaseQuery<R, D>, D, Values, CompletableFuture<R>> asyncFunc) {
+        this.op        = op;
+        this.type      = type;
+        this.func      = func;
+        this.asyncFunc = asyncFunc;
     }
 
     public DatabaseType<D> getType() {
@@ -33,16 +56,38 @@ public class DatabaseQuery<R, D extends Database> {
         return op;
     }
 
+    /**
+     * Check if this query is executed asynchronously
+     * by the database driver, without blocking a thread.
+     * @return If it is non-blocking.
+     */
+    public boolean isNonBlocking() {
+        return asyncFunc != null;
+    }
+
     public R doSync(D db, Values vals) {
         final Values fvals = vals == null ? new Values() : vals;
+        if (func == null) {
+            // wait for the asynchronous query
+            try {
+                return asyncFunc.apply(this, db, fvals).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException re)
+                    throw re;
+                throw e;
+            }
+        }
+
         return func.apply(this, db, fvals);
     }
 
     public CompletableFuture<R> doAsync(final D db, final Values vals) {
         final Values fvals = vals == null ? new Values() : vals;
+        if (asyncFunc != null)
+            return asyncFunc.apply(this, db, fvals);
         return CompletableFuture.supplyAsync(
                 () -> func.apply(this, db, fvals),
-                executor
+                db.manager().executor()
         );
     }
 
@@ -1,5 +1,7 @@
 package net.orbyfied.hscsms.db;
 
+import net.orbyfied.hscsms.db.impl.InMemoryDatabaseType;
+import net.orbyfied.hscsms.db.impl.MongoAsyncDatabaseType;
 import net.orbyfied.hscsms.db.impl.MongoDatabaseType;
 import net.orbyfied.hscsms.util.Values;
 import net.orbyfied.j8.registry.Identifier;
@@ -28,5 +30,7 @@ public abstract class DatabaseType<D extends Database> {
     //////////////////////////////////
 
     public static final MongoDatabaseType MONGO_DB = new MongoDatabaseType();
+    public static final MongoAsyncDatabaseType MONGO_DB_ASYNC = new MongoAsyncDatabaseType();
+    public static final InMemoryDatabaseType IN_MEMORY = new InMemoryDatabaseType();
 
 }
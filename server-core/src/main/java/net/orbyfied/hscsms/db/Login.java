@@ -1,5 +1,7 @@
 package net.orbyfied.hscsms.db;
 
+import net.orbyfied.hscsms.util.Values;
+
 public class Login {
 
     public static URILogin ofURI(String uri, String db) {
@@ -8,6 +10,21 @@ public class Login {
 
     //////////////////////
 
+    // the options of the connection,
+    // like the pool size and timeouts
+    protected Values options = new Values();
+
+    public Login withOptions(Values options) {
+        this.options = options != null ? options : new Values();
+        return this;
+    }
+
+    public Values getOptions() {
+        return options;
+    }
+
+    //////////////////////
+
     public static class URILogin extends Login {
 
         protected final String uri;
@@ -0,0 +1,74 @@
+package net.orbyfied.hscsms.db;
+
+import net.orbyfied.hscsms.util.PositionalValues;
+import net.orbyfied.hscsms.util.Values;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A query resolved once for a database, with a fixed
+ * layout of parameters. It is executed with the values
+ * of the parameters in order, without looking up the
+ * query or building a map of the values. Immutable, so
+ * it can be shared between threads.
+ * @see QueryPool#prepare(String, String...)
+ * @param <R> The result type.
+ * @param <D> The database type.
+ */
+public class PreparedQuery<R, D extends Database> {
+
+    // the query
+    final DatabaseQuery<R, D> query;
+    // the database to execute on
+    final D database;
+    // the parameter names in order
+    final String[] params;
+
+    public PreparedQuery(DatabaseQuery<R, D> query,
+                         D database,
+                         String... params) {
+        this.query    = query;
+        this.database = database;
+        this.params   = params;
+    }
+
+    public DatabaseQuery<R, D> getQuery() {
+        return query;
+    }
+
+    public D getDatabase() {
+        return database;
+    }
+
+    public String[] getParameters() {
+        return params.clone();
+    }
+
+    /**
+     * Binds the values to the parameters.
+     * @param args The values in order of the parameters.
+     * @return The values.
+     */
+    public Values bind(Object... args) {
+        return new PositionalValues(params, args);
+    }
+
+    /**
+     * Executes the query synchronously.
+     * @param args The values in order of the parameters.
+     * @return The result.
+     */
+    public R sync(Object... args) {
+        return query.doSync(database, bind(args));
+    }
+
+    /**
+     * Executes the query asynchronously.
+     * @param args The values in order of the parameters.
+     * @return The future result.
+     */
+    public CompletableFuture<R> async(Object... args) {
+        return query.doAsync(database, bind(args));
+    }
+
+}
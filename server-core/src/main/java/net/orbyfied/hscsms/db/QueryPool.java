@@ -1,6 +1,7 @@
 package net.orbyfied.hscsms.db;
 
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 import net.orbyfied.hscsms.util.Values;
 import net.orbyfied.j8.util.functional.TriFunction;
 
@@ -9,12 +10,6 @@ import java.util.concurrent.CompletableFuture;
 @SuppressWarnings("unchecked")
 public class QueryPool {
 
-    public static int getHash(String op, DatabaseType<?> type) {
-        return (op.hashCode() * 31) | System.identityHashCode(type);
-    }
-
-    ///////////////////////////////////
-
     QueryPool(QueryPool parent) {
         this.parent = parent;
     }
@@ -22,8 +17,9 @@ public class QueryPool {
     // environment
     Values env = new Values();
 
-    // the queries stored
-    Int2ObjectOpenHashMap<DatabaseQuery<Object, Database>> queries = new Int2ObjectOpenHashMap<>();
+    // the queries stored by database type and operation
+    Reference2ObjectOpenHashMap<DatabaseType<?>, Object2ObjectOpenHashMap<String, DatabaseQuery<Object, Database>>> queries =
+            new Reference2ObjectOpenHashMap<>();
 
     // the current database
     Database database;
@@ -48,31 +44,29 @@ public class QueryPool {
         return new QueryPool(this).current(this.database);
     }
 
-    public <R, D extends Database> DatabaseQuery<R, D> getQuery(int h) {
+    public <R, D extends Database> DatabaseQuery<R, D> getQuery(String op,
+                                                                DatabaseType<D> type) {
         DatabaseQuery<R, D> query;
+        Object2ObjectOpenHashMap<String, DatabaseQuery<Object, Database>> ofType;
         // search local
-        if ((query = (DatabaseQuery<R, D>) queries.get(h)) != null)
+        if ((ofType = queries.get(type)) != null &&
+                (query = (DatabaseQuery<R, D>) ofType.get(op)) != null)
             return query;
         // search parent
         if (parent != null)
-            return parent.getQuery(h);
+            return parent.getQuery(op, type);
         // return absent
         return null;
     }
 
-    public <R, D extends Database> DatabaseQuery<R, D> getQuery(String op,
-                                                                DatabaseType<D> type) {
-        int h = getHash(op, type);
-        return getQuery(h);
-    }
-
     public <R, D extends Database> DatabaseQuery<R, D> getQuery(String op) {
         return (DatabaseQuery<R, D>) getQuery(op, currentType);
     }
 
 
     public QueryPool putQuery(DatabaseQuery<?, ? extends Database> query) {
-        queries.put(getHash(query.op, query.type), (DatabaseQuery<Object, Database>) query);
+        queries.computeIfAbsent(query.type, t -> new Object2ObjectOpenHashMap<>())
+                .put(query.op, (DatabaseQuery<Object, Database>) query);
         return this;
     }
 
@@ -81,6 +75,30 @@ public class QueryPool {
         return putQuery(new DatabaseQuery<>(op, type, func));
     }
 
+    public <R, D extends Database> QueryPool putAsyncQuery(String op, DatabaseType<D> type,
+                                                           TriFunction<DatabaseQuery<R, D>, D, Values, CompletableFuture<R>> func) {
+        return putQuery(DatabaseQuery.ofAsync(op, type, func));
+    }
+
+    /**
+     * Prepares the query for the current database,
+     * to be executed with the values of the given
+     * parameters in order.
+     * @param op The operation name.
+     * @param params The parameter names.
+     * @param <R> The result type.
+     * @param <D> The database type.
+     * @return The prepared query.
+     * @throws IllegalArgumentException If the query is absent.
+     */
+    public <R, D extends Database> PreparedQuery<R, D> prepare(String op, String... params) {
+        DatabaseQuery<R, D> query = (DatabaseQuery<R, D>) getQuery(op, currentType);
+        if (query == null)
+            throw new IllegalArgumentException("no query '" + op + "' for database type " +
+                    (currentType == null ? "null" : currentType.getIdentifier()));
+        return new PreparedQuery<>(query, (D) database, params);
+    }
+
     public <R> R querySync(String op, DatabaseType<Database> type, Values vals) {
         return (R) getQuery(op, type).doSync(database, vals);
     }
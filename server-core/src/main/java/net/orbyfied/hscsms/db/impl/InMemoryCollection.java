@@ -0,0 +1,240 @@
+package net.orbyfied.hscsms.db.impl;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A collection of documents kept in memory, keyed
+ * by a primary key, with optional secondary indexes
+ * on fields. Stored documents are never modified,
+ * updates replace them with a modified copy, so
+ * readers always see a consistent document.
+ */
+@SuppressWarnings("unchecked")
+public class InMemoryCollection {
+
+    // the collection name
+    final String name;
+    // the primary key field name
+    final String keyName;
+
+    // the documents by primary key
+    final ConcurrentHashMap<Object, Map<String, Object>> documents = new ConcurrentHashMap<>();
+    // the secondary indexes, by field name
+    final ConcurrentHashMap<String, Index> indexes = new ConcurrentHashMap<>();
+
+    // a secondary index mapping field values
+    // to primary keys, only used for finding
+    // documents once it has been built
+    static final class Index {
+        final ConcurrentHashMap<Object, Set<Object>> keys = new ConcurrentHashMap<>();
+        volatile boolean built;
+    }
+
+    public InMemoryCollection(String name, String keyName) {
+        this.name    = name;
+        this.keyName = keyName;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String keyName() {
+        return keyName;
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    /**
+     * Creates a secondary index on the field, indexing
+     * the present documents. May be called while the
+     * collection is used concurrently, the index is
+     * used for finding documents once it is complete.
+     * @param field The field name.
+     * @return This.
+     */
+    public InMemoryCollection index(String field) {
+        // publish the empty index first, so
+        // concurrent updates are indexed
+        Index index = new Index();
+        if (indexes.putIfAbsent(field, index) != null)
+            return this;
+
+        // index the present documents, each under
+        // the lock of its key so it can not race
+        // with an update of the same document
+        for (Object key : documents.keySet()) {
+            documents.computeIfPresent(key, (k, doc) -> {
+                Object val = doc.get(field);
+                if (val != null)
+                    addKey(index, val, k);
+                return doc;
+            });
+        }
+
+        index.built = true;
+        return this;
+    }
+
+    public boolean isIndexed(String field) {
+        return indexes.containsKey(field);
+    }
+
+    /**
+     * Get a document by primary key.
+     * @param key The key.
+     * @return The unmodifiable document or null if absent.
+     */
+    public Map<String, Object> get(Object key) {
+        return documents.get(key);
+    }
+
+    /**
+     * Applies the changes to the document with the
+     * primary key, creating it if absent and requested.
+     * @param key The key.
+     * @param changes The changed fields.
+     * @param upsert If it should be created if absent.
+     * @return The updated document or null if absent.
+     */
+    public Map<String, Object> update(Object key, Map<String, Object> changes, boolean upsert) {
+        return documents.compute(key, (k, doc) -> {
+            Map<String, Object> updated;
+            if (doc == null) {
+                if (!upsert)
+                    return null;
+                updated = new HashMap<>();
+                updated.put(keyName, k);
+            } else {
+                updated = new HashMap<>(doc);
+            }
+
+            // apply changes
+            for (Map.Entry<String, Object> entry : changes.entrySet()) {
+                String field = entry.getKey();
+                if (field.equals(keyName))
+                    continue;
+                Object old = updated.put(field, entry.getValue());
+                reindex(field, k, old, entry.getValue());
+            }
+
+            return Collections.unmodifiableMap(updated);
+        });
+    }
+
+    /**
+     * Removes the document with the primary key.
+     * @param key The key.
+     * @return The removed document or null if absent.
+     */
+    public Map<String, Object> remove(Object key) {
+        Map<String, Object>[] removed = new Map[1];
+        documents.computeIfPresent(key, (k, doc) -> {
+            for (Map.Entry<String, Object> entry : doc.entrySet())
+                reindex(entry.getKey(), k, entry.getValue(), null);
+            removed[0] = doc;
+            return null;
+        });
+
+        return removed[0];
+    }
+
+    /**
+     * Finds the first document with all
+     * fields equal to the filter values.
+     * @param filter The equality filter.
+     * @return The document or null if absent.
+     */
+    public Map<String, Object> findFirst(Map<String, Object> filter) {
+        for (Object key : candidates(filter)) {
+            Map<String, Object> doc = documents.get(key);
+            if (doc != null && matches(doc, filter))
+                return doc;
+        }
+
+        return null;
+    }
+
+    /**
+     * Finds all documents with all fields
+     * equal to the filter values.
+     * @param filter The equality filter.
+     * @return The documents.
+     */
+    public List<Map<String, Object>> findAll(Map<String, Object> filter) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Object key : candidates(filter)) {
+            Map<String, Object> doc = documents.get(key);
+            if (doc != null && matches(doc, filter))
+                result.add(doc);
+        }
+
+        return result;
+    }
+
+    // selects the smallest set of primary keys
+    // which could match the filter
+    private Collection<Object> candidates(Map<String, Object> filter) {
+        // filter by primary key
+        Object key = filter.get(keyName);
+        if (key != null)
+            return Collections.singletonList(key);
+
+        // use the smallest index
+        Collection<Object> best = null;
+        for (Map.Entry<String, Object> entry : filter.entrySet()) {
+            Index index = indexes.get(entry.getKey());
+            if (index == null || !index.built)
+                continue;
+            Set<Object> keys = index.keys.get(entry.getValue());
+            if (keys == null)
+                return Collections.emptyList();
+            if (best == null || keys.size() < best.size())
+                best = keys;
+        }
+
+        // scan all documents
+        return best != null ? best : documents.keySet();
+    }
+
+    private static boolean matches(Map<String, Object> doc, Map<String, Object> filter) {
+        for (Map.Entry<String, Object> entry : filter.entrySet())
+            if (!Objects.equals(doc.get(entry.getKey()), entry.getValue()))
+                return false;
+        return true;
+    }
+
+    // updates the index of the field, if indexed
+    private void reindex(String field, Object key, Object old, Object val) {
+        Index index = indexes.get(field);
+        if (index == null || Objects.equals(old, val))
+            return;
+
+        if (old != null) {
+            index.keys.computeIfPresent(old, (v, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+
+        if (val != null) {
+            addKey(index, val, key);
+        }
+    }
+
+    // adds the key to the keys of the value, within
+    // the lock of the value so a concurrent removal
+    // can't drop the set the key is added to
+    private static void addKey(Index index, Object val, Object key) {
+        index.keys.compute(val, (v, keys) -> {
+            if (keys == null)
+                keys = ConcurrentHashMap.newKeySet();
+            keys.add(key);
+            return keys;
+        });
+    }
+
+}
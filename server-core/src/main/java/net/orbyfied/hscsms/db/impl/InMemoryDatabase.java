@@ -0,0 +1,64 @@
+package net.orbyfied.hscsms.db.impl;
+
+import net.orbyfied.hscsms.db.Database;
+import net.orbyfied.hscsms.db.DatabaseManager;
+import net.orbyfied.hscsms.db.DatabaseType;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * A database which keeps all data in memory,
+ * for tests, benchmarks and cache-only nodes.
+ * Nothing is persisted.
+ */
+public class InMemoryDatabase extends Database {
+
+    public InMemoryDatabase(DatabaseManager manager, String name) {
+        super(manager, name, DatabaseType.IN_MEMORY);
+    }
+
+    // the collections by name
+    protected final ConcurrentHashMap<String, InMemoryCollection> collections = new ConcurrentHashMap<>();
+    // if it has been logged in
+    protected volatile boolean open;
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    public Collection<InMemoryCollection> getCollections() {
+        return Collections.unmodifiableCollection(collections.values());
+    }
+
+    public InMemoryCollection getCollection(String name) {
+        return collections.get(name);
+    }
+
+    /**
+     * Get or create a collection.
+     * @param name The collection name.
+     * @param keyName The primary key field name.
+     * @param initializer Called once when created, before it is
+     *                    visible to other threads, to create indexes.
+     * @return The collection.
+     */
+    public InMemoryCollection getOrCreateCollection(String name,
+                                                    String keyName,
+                                                    Consumer<InMemoryCollection> initializer) {
+        InMemoryCollection collection;
+        if ((collection = collections.get(name)) != null)
+            return collection;
+
+        return collections.computeIfAbsent(name, n -> {
+            InMemoryCollection c = new InMemoryCollection(n, keyName);
+            if (initializer != null)
+                initializer.accept(c);
+            return c;
+        });
+    }
+
+}
@@ -0,0 +1,102 @@
+package net.orbyfied.hscsms.db.impl;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import net.orbyfied.hscsms.db.Database;
+import net.orbyfied.hscsms.db.DatabaseItem;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+public class InMemoryDatabaseItem extends DatabaseItem {
+
+    /**
+     * The primary key value.
+     */
+    final Object key;
+
+    /**
+     * The collection this item is stored in.
+     */
+    final InMemoryCollection collection;
+
+    // the changes to be applied, only containing
+    // values which differ from the stored document
+    Object2ObjectOpenHashMap<String, Object> changes = new Object2ObjectOpenHashMap<>();
+    // the local copy of the stored document
+    Map<String, Object> document;
+
+    public InMemoryDatabaseItem(Database database,
+                                InMemoryCollection collection,
+                                Object key) {
+        super(database);
+        this.collection = collection;
+        this.key        = key;
+    }
+
+    public InMemoryDatabaseItem(Database database,
+                                InMemoryCollection collection,
+                                Object key,
+                                Map<String, Object> document) {
+        this(database, collection, key);
+        this.document = document != null ? new HashMap<>(document) : null;
+    }
+
+    public InMemoryCollection collection() {
+        return collection;
+    }
+
+    @Override
+    public Object key() {
+        return key;
+    }
+
+    /**
+     * Check if there are changes to be pushed.
+     * @return If anything changed.
+     */
+    public boolean hasChanges() {
+        return !changes.isEmpty();
+    }
+
+    @Override
+    public void set(String key, Object val) {
+        // only track the value if it
+        // differs from the stored one
+        if (document != null && document.containsKey(key) && Objects.deepEquals(document.get(key), val))
+            changes.remove(key);
+        else
+            changes.put(key, val);
+    }
+
+    @Override
+    public <T> T get(String key, Class<T> type) {
+        if (changes.containsKey(key))
+            return type.cast(changes.get(key));
+        if (document == null)
+            return null;
+        return type.cast(document.get(key));
+    }
+
+    @Override
+    public InMemoryDatabaseItem push() {
+        if (changes.isEmpty())
+            return this;
+
+        // apply changes
+        Map<String, Object> updated = collection.update(key, changes, true);
+        changes.clear();
+
+        // update local copy
+        document = new HashMap<>(updated);
+        return this;
+    }
+
+    @Override
+    public InMemoryDatabaseItem pull() {
+        Map<String, Object> stored = collection.get(key);
+        document = stored != null ? new HashMap<>(stored) : null;
+        return this;
+    }
+
+}
@@ -0,0 +1,36 @@
+package net.orbyfied.hscsms.db.impl;
+
+import net.orbyfied.hscsms.db.Database;
+import net.orbyfied.hscsms.db.DatabaseManager;
+import net.orbyfied.hscsms.db.DatabaseType;
+import net.orbyfied.hscsms.db.Login;
+import net.orbyfied.hscsms.util.Values;
+import net.orbyfied.j8.registry.Identifier;
+
+public class InMemoryDatabaseType extends DatabaseType<InMemoryDatabase> {
+
+    public static final Identifier ID = Identifier.of("memory");
+
+    public InMemoryDatabaseType() {
+        super(ID);
+    }
+
+    @Override
+    protected void login(InMemoryDatabase database, Login login) {
+        // nothing to connect to
+        database.open = true;
+        DatabaseManager.LOGGER.ok("Opened in-memory database '" + database.name() + "'");
+    }
+
+    @Override
+    protected void close(InMemoryDatabase database) {
+        database.open = false;
+        database.collections.clear();
+    }
+
+    @Override
+    protected void putEnv(Database db, Values values) {
+
+    }
+
+}
@@ -0,0 +1,75 @@
+package net.orbyfied.hscsms.db.impl;
+
+import com.mongodb.async.SingleResultCallback;
+import com.mongodb.async.client.MongoClient;
+import net.orbyfied.hscsms.db.Database;
+import net.orbyfied.hscsms.db.DatabaseManager;
+import net.orbyfied.hscsms.db.DatabaseType;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A MongoDB database accessed with the asynchronous
+ * driver, queries complete on the callbacks of the
+ * driver instead of occupying a thread each.
+ */
+public class MongoAsyncDatabase extends Database {
+
+    public MongoAsyncDatabase(DatabaseManager manager, String name) {
+        super(manager, name, DatabaseType.MONGO_DB_ASYNC);
+    }
+
+    // mongo client
+    protected MongoClient client;
+    // mongo database client
+    protected com.mongodb.async.client.MongoDatabase db;
+
+    public MongoClient getClient() {
+        return client;
+    }
+
+    public com.mongodb.async.client.MongoDatabase getDatabaseClient() {
+        return db;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return db != null;
+    }
+
+    /* ---- Utilities ---- */
+
+    /**
+     * Creates a driver callback completing the future.
+     * @param future The future.
+     * @param <T> The result type.
+     * @return The callback.
+     */
+    public static <T> SingleResultCallback<T> callback(CompletableFuture<? super T> future) {
+        return (result, t) -> {
+            if (t != null)
+                future.completeExceptionally(t);
+            else
+                future.complete(result);
+        };
+    }
+
+    /**
+     * Waits for the future, rethrowing the
+     * failure of it without wrapping it.
+     * @param future The future.
+     * @param <T> The result type.
+     * @return The result.
+     */
+    public static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re)
+                throw re;
+            throw e;
+        }
+    }
+
+}
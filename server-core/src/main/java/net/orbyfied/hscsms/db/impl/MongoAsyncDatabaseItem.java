@@ -0,0 +1,81 @@
+package net.orbyfied.hscsms.db.impl;
+
+import com.mongodb.async.client.MongoCollection;
+import com.mongodb.client.model.UpdateOptions;
+import net.orbyfied.hscsms.db.Database;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A MongoDB document written and read with the
+ * asynchronous driver. The synchronous push and
+ * pull wait for the asynchronous ones.
+ */
+public class MongoAsyncDatabaseItem extends MongoDocumentItem {
+
+    /**
+     * The collection this item is stored in.
+     */
+    MongoCollection<Document> collection;
+
+    public MongoAsyncDatabaseItem(Database database,
+                                  String keyName,
+                                  MongoCollection<Document> collection,
+                                  Object key) {
+        this(database, keyName, collection, key, null);
+    }
+
+    public MongoAsyncDatabaseItem(Database database,
+                                  String keyName,
+                                  MongoCollection<Document> collection,
+                                  Object key,
+                                  Document document) {
+        super(database, keyName, key, document);
+        this.collection = collection;
+    }
+
+    /**
+     * Writes the pending changes to the database.
+     * @return The future completed once written.
+     */
+    public CompletableFuture<MongoAsyncDatabaseItem> pushAsync() {
+        Bson update = createUpdate();
+        if (update == null)
+            return CompletableFuture.completedFuture(this);
+
+        // execute updates
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        collection.updateOne(createFilter(), update, new UpdateOptions().upsert(true),
+                MongoAsyncDatabase.callback(future));
+        return future.thenApply(result -> {
+            commitChanges();
+            return this;
+        });
+    }
+
+    /**
+     * Reads the document from the database.
+     * @return The future completed once read.
+     */
+    public CompletableFuture<MongoAsyncDatabaseItem> pullAsync() {
+        CompletableFuture<Document> future = new CompletableFuture<>();
+        collection.find(createFilter()).first(MongoAsyncDatabase.callback(future));
+        return future.thenApply(doc -> {
+            document = doc;
+            return this;
+        });
+    }
+
+    @Override
+    public MongoAsyncDatabaseItem push() {
+        return MongoAsyncDatabase.await(pushAsync());
+    }
+
+    @Override
+    public MongoAsyncDatabaseItem pull() {
+        return MongoAsyncDatabase.await(pullAsync());
+    }
+
+}
@@ -0,0 +1,62 @@
+package net.orbyfied.hscsms.db.impl;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.async.client.MongoClient;
+import com.mongodb.async.client.MongoClients;
+import net.orbyfied.hscsms.db.Database;
+import net.orbyfied.hscsms.db.DatabaseManager;
+import net.orbyfied.hscsms.db.DatabaseType;
+import net.orbyfied.hscsms.db.Login;
+import net.orbyfied.hscsms.service.Logging;
+import net.orbyfied.hscsms.util.Values;
+import net.orbyfied.j8.registry.Identifier;
+import net.orbyfied.j8.util.logging.Logger;
+
+public class MongoAsyncDatabaseType extends DatabaseType<MongoAsyncDatabase> {
+
+    public static final Identifier ID = Identifier.of("mongodb-async");
+
+    public MongoAsyncDatabaseType() {
+        super(ID);
+    }
+
+    @Override
+    protected void login(MongoAsyncDatabase database, Login login) {
+        Logger logger = DatabaseManager.LOGGER;
+
+        try {
+            logger.info("Logging in database '" + database.name() + "' of type " + ID);
+
+            if (!(login instanceof Login.URILogin))
+                throw new IllegalArgumentException("login must be a URILogin");
+            Login.URILogin ul = (Login.URILogin) login;
+
+            // create client settings from the
+            // connection string and options
+            MongoClientSettings settings = MongoClientConfig.create(database, ul, true);
+
+            // login to client
+            MongoClient mongoClient = MongoClients.create(settings);
+            database.client = mongoClient;
+
+            // get database
+            database.db = mongoClient.getDatabase(ul.getDatabase());
+
+            logger.ok("Successfully logged in database '" + database.name() + "'");
+        } catch (Exception e) {
+            logger.err("Error while logging in database '" + database.name() + "'", e);
+            e.printStackTrace(Logging.ERR);
+        }
+    }
+
+    @Override
+    protected void close(MongoAsyncDatabase database) {
+        database.client.close();
+    }
+
+    @Override
+    protected void putEnv(Database db, Values values) {
+
+    }
+
+}
@@ -0,0 +1,82 @@
+package net.orbyfied.hscsms.db.impl;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import net.orbyfied.hscsms.db.Database;
+import net.orbyfied.hscsms.db.Login;
+import net.orbyfied.hscsms.util.Values;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Creates the settings of the MongoDB clients from
+ * the connection string and the login options. Options
+ * which are absent keep the value of the connection
+ * string or the driver default.
+ */
+final class MongoClientConfig {
+
+    private MongoClientConfig() { }
+
+    // get the number option, or -1 if absent
+    private static long number(Values options, String key) {
+        if (options == null || !options.contains(key))
+            return -1;
+        return ((Number) options.getRaw(key)).longValue();
+    }
+
+    // get the section of the options, or null if absent
+    private static Values section(Values options, String key) {
+        return options.contains(key) ? options.get(key, Values.class) : null;
+    }
+
+    /**
+     * Creates the client settings for the database,
+     * with a listener recording the commands and the
+     * connection pool in the metrics of the database.
+     * @param database The database.
+     * @param login The login.
+     * @param async If the client is of the asynchronous driver.
+     * @return The settings.
+     */
+    static MongoClientSettings create(Database database, Login.URILogin login, boolean async) {
+        Values options = login.getOptions();
+        Values pool    = section(options, "pool");
+
+        // set mongo logging level
+        Level level;
+        try {
+            level = Level.parse(options.getOrDefault("driver-log-level", "off").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            level = Level.OFF;
+        }
+        java.util.logging.Logger.getLogger("org.mongodb.driver").setLevel(level);
+
+        MongoMetricsListener listener = new MongoMetricsListener(database.metrics(), !async);
+        return MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(login.getURI()))
+                .addCommandListener(listener)
+                .applyToConnectionPoolSettings(builder -> {
+                    builder.addConnectionPoolListener(listener);
+                    long v;
+                    if ((v = number(pool, "max-size")) != -1)      builder.maxSize((int) v);
+                    if ((v = number(pool, "min-size")) != -1)      builder.minSize((int) v);
+                    if ((v = number(pool, "max-wait-time")) != -1) builder.maxWaitTime(v, TimeUnit.MILLISECONDS);
+                    if ((v = number(pool, "max-idle-time")) != -1) builder.maxConnectionIdleTime(v, TimeUnit.MILLISECONDS);
+                    if ((v = number(pool, "max-life-time")) != -1) builder.maxConnectionLifeTime(v, TimeUnit.MILLISECONDS);
+                })
+                .applyToSocketSettings(builder -> {
+                    long v;
+                    if ((v = number(options, "connect-timeout")) != -1) builder.connectTimeout((int) v, TimeUnit.MILLISECONDS);
+                    if ((v = number(options, "read-timeout")) != -1)    builder.readTimeout((int) v, TimeUnit.MILLISECONDS);
+                })
+                .applyToClusterSettings(builder -> {
+                    long v;
+                    if ((v = number(options, "server-selection-timeout")) != -1)
+                        builder.serverSelectionTimeout(v, TimeUnit.MILLISECONDS);
+                })
+                .build();
+    }
+
+}
@@ -1,6 +1,5 @@
 package net.orbyfied.hscsms.db.impl;
 
-import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
@@ -13,18 +12,12 @@ import net.orbyfied.hscsms.util.Values;
 import net.orbyfied.j8.registry.Identifier;
 import net.orbyfied.j8.util.logging.Logger;
 
-import java.util.logging.Level;
-
 public class MongoDatabaseType extends DatabaseType<MongoDatabase> {
 
     public static final Identifier ID = Identifier.of("mongodb");
 
     public MongoDatabaseType() {
         super(ID);
-
-        // set mongo logging level
-        java.util.logging.Logger logger = java.util.logging.Logger.getLogger("org.mongodb.driver");
-        logger.setLevel(Level.OFF);
     }
 
     @Override
@@ -38,12 +31,9 @@ public class MongoDatabaseType extends DatabaseType<MongoDatabase> {
                 throw new IllegalArgumentException("login must be a URILogin");
             Login.URILogin ul = (Login.URILogin) login;
 
-            // create connection string
-            // and client settings
-            ConnectionString connectionString = new ConnectionString(ul.getURI());
-            MongoClientSettings settings = MongoClientSettings.builder()
-                    .applyConnectionString(connectionString)
-                    .build();
+            // create client settings from the
+            // connection string and options
+            MongoClientSettings settings = MongoClientConfig.create(database, ul, false);
 
             // login to client
             MongoClient mongoClient = MongoClients.create(settings);
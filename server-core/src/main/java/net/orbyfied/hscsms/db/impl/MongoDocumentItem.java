@@ -0,0 +1,116 @@
+package net.orbyfied.hscsms.db.impl;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import net.orbyfied.hscsms.db.Database;
+import net.orbyfied.hscsms.db.DatabaseItem;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.Binary;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A MongoDB document, tracking the changes made
+ * to it locally so only those are written. The
+ * writing is done by the driver specific items.
+ */
+public abstract class MongoDocumentItem extends DatabaseItem {
+
+    /**
+     * The primary key value.
+     */
+    Object key;
+
+    /**
+     * The primary key value name.
+     */
+    String keyName;
+
+    // the changes to be applied, only containing
+    // values which differ from the stored document
+    Object2ObjectOpenHashMap<String, Object> changes = new Object2ObjectOpenHashMap<>();
+    // the document as last pulled or pushed
+    Document document;
+
+    public MongoDocumentItem(Database database,
+                             String keyName,
+                             Object key,
+                             Document document) {
+        super(database);
+        this.keyName  = keyName;
+        this.key      = key;
+        this.document = document;
+    }
+
+    public Bson createFilter() {
+        return Filters.eq(keyName, key);
+    }
+
+    @Override
+    public Object key() {
+        return key;
+    }
+
+    // compares a stored value to a new value,
+    // binary data is compared by content
+    static boolean valueEquals(Object stored, Object val) {
+        if (stored instanceof Binary binary)
+            stored = binary.getData();
+        return Objects.deepEquals(stored, val);
+    }
+
+    @Override
+    public void set(String key, Object val) {
+        // only track the value if it
+        // differs from the stored one
+        if (document != null && document.containsKey(key) && valueEquals(document.get(key), val))
+            changes.remove(key);
+        else
+            changes.put(key, val);
+    }
+
+    @Override
+    public <T> T get(String key, Class<T> type) {
+        if (changes.containsKey(key))
+            return type.cast(changes.get(key));
+        return document.get(key, type);
+    }
+
+    /**
+     * Creates the update for the pending changes.
+     * @return The update or null if nothing changed.
+     */
+    public Bson createUpdate() {
+        if (changes.isEmpty())
+            return null;
+
+        // construct update
+        Bson[] bsons = new Bson[changes.size()];
+        int i = 0;
+        for (Map.Entry<String, Object> entry : changes.entrySet()) {
+            bsons[i] = Updates.set(entry.getKey(), entry.getValue());
+            i++;
+        }
+
+        return Updates.combine(bsons);
+    }
+
+    /**
+     * Applies the pending changes to the stored document
+     * once they have been written and clears them. Items
+     * referencing a document without fetching it start
+     * the stored document from the written values.
+     * @return This.
+     */
+    public MongoDocumentItem commitChanges() {
+        if (document == null)
+            document = new Document();
+        document.putAll(changes);
+        changes.clear();
+        return this;
+    }
+
+}
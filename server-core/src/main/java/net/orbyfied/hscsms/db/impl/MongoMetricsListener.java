@@ -0,0 +1,92 @@
+package net.orbyfied.hscsms.db.impl;
+
+import com.mongodb.event.*;
+import net.orbyfied.hscsms.db.DatabaseMetrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listens to the commands and the connection pool
+ * of a MongoDB client, recording them in the
+ * metrics of the database.
+ */
+public class MongoMetricsListener extends ConnectionPoolListenerAdapter implements CommandListener {
+
+    // the metrics
+    final DatabaseMetrics metrics;
+
+    // if the check out wait time is recorded, only
+    // possible if check outs complete on the thread
+    // which started them, which the asynchronous
+    // driver does not guarantee, and its events carry
+    // nothing to correlate them by
+    final boolean timeCheckOuts;
+
+    // the time the current thread started
+    // checking out a connection
+    final ThreadLocal<long[]> checkOutStart = ThreadLocal.withInitial(() -> new long[] { -1 });
+
+    public MongoMetricsListener(DatabaseMetrics metrics, boolean timeCheckOuts) {
+        this.metrics       = metrics;
+        this.timeCheckOuts = timeCheckOuts;
+    }
+
+    /* ---- Commands ---- */
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) { }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        metrics.recordCommand(event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS), true);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        metrics.recordCommand(event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS), false);
+    }
+
+    /* ---- Connection Pool ---- */
+
+    @Override
+    public void connectionCreated(ConnectionCreatedEvent event) {
+        metrics.connectionOpened();
+    }
+
+    @Override
+    public void connectionClosed(ConnectionClosedEvent event) {
+        metrics.connectionClosed();
+    }
+
+    @Override
+    public void connectionCheckOutStarted(ConnectionCheckOutStartedEvent event) {
+        if (timeCheckOuts)
+            checkOutStart.get()[0] = System.nanoTime();
+        metrics.checkOutStarted();
+    }
+
+    @Override
+    public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+        if (!timeCheckOuts) {
+            metrics.checkedOut(-1);
+            return;
+        }
+
+        long[] start = checkOutStart.get();
+        metrics.checkedOut(start[0] != -1 ? System.nanoTime() - start[0] : -1);
+        start[0] = -1;
+    }
+
+    @Override
+    public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+        if (timeCheckOuts)
+            checkOutStart.get()[0] = -1;
+        metrics.checkOutFailed();
+    }
+
+    @Override
+    public void connectionCheckedIn(ConnectionCheckedInEvent event) {
+        metrics.checkedIn();
+    }
+
+}
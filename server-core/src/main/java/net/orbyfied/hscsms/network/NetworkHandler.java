@@ -2,6 +2,7 @@ package net.orbyfied.hscsms.network;
 
 import net.orbyfied.hscsms.network.handler.HandlerNode;
 import net.orbyfied.hscsms.service.Logging;
+import net.orbyfied.hscsms.util.worker.VirtualThreads;
 import net.orbyfied.j8.util.logging.Logger;
 
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -31,6 +32,8 @@ public abstract class NetworkHandler<S extends NetworkHandler> {
     // worker
     protected AtomicBoolean active = new AtomicBoolean(true);
     protected WorkerThread workerThread;
+    // if workers should run on virtual threads
+    protected boolean virtualThreads;
 
     private final S self;
 
@@ -58,6 +61,22 @@ public abstract class NetworkHandler<S extends NetworkHandler> {
         return manager;
     }
 
+    /**
+     * Sets if the worker (and other threads owned
+     * by this handler) should be virtual threads.
+     * Has no effect if virtual threads are unsupported.
+     * @param b If it should use virtual threads.
+     * @return This.
+     */
+    public S virtualThreads(boolean b) {
+        this.virtualThreads = b;
+        return self;
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads && VirtualThreads.isSupported();
+    }
+
     public S start() {
         // create worker thread
         if (workerThread == null)
@@ -103,11 +122,35 @@ public abstract class NetworkHandler<S extends NetworkHandler> {
 
     /* ---- Worker ---- */
 
-    public abstract class WorkerThread extends Thread {
+    public abstract class WorkerThread implements Runnable {
         static int id = 0;
 
+        // the thread name
+        final String name;
+        // the thread, once started
+        Thread thread;
+
         public WorkerThread() {
-            super("NHWorker-" + (id++));
+            this.name = "NHWorker-" + (id++);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Thread thread() {
+            return thread;
+        }
+
+        /**
+         * Creates the thread, virtual if enabled,
+         * and starts it.
+         */
+        public synchronized void start() {
+            if (thread != null)
+                throw new IllegalStateException("worker already started");
+            thread = VirtualThreads.newThread(virtualThreads, name, this);
+            thread.start();
         }
 
         @Override
@@ -0,0 +1,377 @@
+package net.orbyfied.hscsms.network.handler;
+
+import net.orbyfied.hscsms.network.NetworkHandler;
+import net.orbyfied.hscsms.network.NetworkManager;
+import net.orbyfied.hscsms.network.Packet;
+import net.orbyfied.hscsms.security.EncryptionProfile;
+import net.orbyfied.hscsms.service.Logging;
+import net.orbyfied.hscsms.util.data.ByteBufferPool;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Network handler for non-blocking socket channels.
+ * Instead of owning a worker thread it is registered
+ * to a {@link SelectorLoopGroup}, which reads packets on
+ * one of its loops. The packets are decoded and handled
+ * in order on the handler executor of the group, so
+ * blocking handlers don't stall the other connections
+ * of the loop, or on the loop if the group has none.
+ */
+@SuppressWarnings("rawtypes")
+public class ChannelNetworkHandler extends SocketNetworkHandler {
+
+    // the initial size of the read buffer
+    static final int INITIAL_BUFFER_SIZE = 8192;
+    // the largest read buffer kept once drained
+    static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    // the loop group and assigned loop
+    final SelectorLoopGroup loopGroup;
+    SelectorLoopGroup.Loop loop;
+
+    // the channel
+    SocketChannel channel;
+    // the selection key, null until registered, set
+    // on the loop and read by sending threads
+    volatile SelectionKey key;
+
+    // the buffer of received, undecoded data
+    ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    // the queue of encoded packets to be written
+    final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+
+    // the received frames to be decoded and handled
+    // on the handler executor
+    final ConcurrentLinkedQueue<Frame> handleQueue = new ConcurrentLinkedQueue<>();
+    // if a task handling the queued frames is scheduled
+    final AtomicBoolean handling = new AtomicBoolean(false);
+
+    // if the disconnect has been handled
+    final AtomicBoolean closed = new AtomicBoolean(false);
+
+    public ChannelNetworkHandler(final NetworkManager manager,
+                                 final NetworkHandler parent,
+                                 final SelectorLoopGroup loopGroup) {
+        super(manager, parent);
+        this.loopGroup = loopGroup;
+    }
+
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    public ChannelNetworkHandler connect(SocketChannel channel) {
+        this.channel = channel;
+        this.socket  = channel.socket();
+
+        try {
+            channel.configureBlocking(false);
+        } catch (Exception e) {
+            fatalClose();
+            LOGGER.err("Error while connecting");
+            e.printStackTrace(Logging.ERR);
+        }
+
+        return this;
+    }
+
+    @Override
+    public ChannelNetworkHandler connect(Socket socket) {
+        if (socket.getChannel() == null)
+            throw new IllegalArgumentException("socket has no channel");
+        return connect(socket.getChannel());
+    }
+
+    @Override
+    public ChannelNetworkHandler start() {
+        // set active and register
+        // to a selector loop
+        active.set(true);
+        loop = loopGroup.register(this);
+        return this;
+    }
+
+    @Override
+    public ChannelNetworkHandler stop() {
+        active.set(false);
+
+        // deregister and notify on the loop
+        if (loop != null) {
+            loop.execute(() -> {
+                if (key != null)
+                    key.cancel();
+                onClosed(null);
+            });
+        }
+
+        return this;
+    }
+
+    @Override
+    public ChannelNetworkHandler fatalClose() {
+        try {
+            if (key != null) key.cancel();
+            if (channel != null && channel.isOpen()) channel.close();
+        } catch (Throwable e) {
+            e.printStackTrace(Logging.ERR);
+        }
+
+        shutdownExecutor();
+
+        return this;
+    }
+
+    @Override
+    protected NetworkHandler.WorkerThread createWorkerThread() {
+        // io is done by the selector loop
+        return null;
+    }
+
+    /* ---- Sending ---- */
+
+    @Override
+    public SocketNetworkHandler sendSyncRaw(Packet packet) {
+        return sendEncoded(packet, null);
+    }
+
+    @Override
+    public SocketNetworkHandler sendSyncEncrypted(Packet packet, EncryptionProfile encryption) {
+        return sendEncoded(packet, encryption);
+    }
+
+    @Override
+    public CompletableFuture<SocketNetworkHandler> sendAsyncRaw(Packet packet) {
+        // writing never blocks
+        return CompletableFuture.completedFuture(sendSyncRaw(packet));
+    }
+
+    @Override
+    public CompletableFuture<SocketNetworkHandler> sendAsync(Packet packet) {
+        // writing never blocks
+        return CompletableFuture.completedFuture(sendSync(packet));
+    }
+
+    @Override
+    public CompletableFuture<SocketNetworkHandler> sendAsyncEncrypted(Packet packet, EncryptionProfile profile) {
+        // writing never blocks
+        return CompletableFuture.completedFuture(sendSyncEncrypted(packet, profile));
+    }
+
+    private SocketNetworkHandler sendEncoded(Packet packet, EncryptionProfile encryption) {
+        try {
+            // encode packet and queue for writing, encrypted
+            // packets are encoded under the queue lock so they
+            // are sent in the order they were encrypted in
+            if (encryption == null) {
+                enqueue(encodePacket(packet, null, ByteBufferPool.DIRECT));
+            } else {
+                synchronized (writeQueue) {
+                    enqueue(encodePacket(packet, encryption, ByteBufferPool.DIRECT));
+                }
+            }
+
+            // return
+            return this;
+        } catch (Throwable t) {
+            t.printStackTrace(Logging.ERR);
+            return this;
+        }
+    }
+
+    /**
+     * Writes the buffer directly if nothing is
+     * queued, otherwise queues it and requests
+     * write readiness from the selector.
+     * @param buf The encoded data.
+     */
+    void enqueue(ByteBuffer buf) throws IOException {
+        synchronized (writeQueue) {
+            // try to write directly
+            if (writeQueue.isEmpty() && key != null) {
+                channel.write(buf);
+                if (!buf.hasRemaining()) {
+                    ByteBufferPool.DIRECT.release(buf);
+                    return;
+                }
+            }
+
+            // queue remaining data
+            writeQueue.add(buf);
+            if (key != null && key.isValid()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                key.selector().wakeup();
+            }
+        }
+    }
+
+    /* ---- Loop Callbacks ---- */
+
+    // called on the loop to register the channel
+    void register(SelectorLoopGroup.Loop loop) {
+        try {
+            synchronized (writeQueue) {
+                int ops = SelectionKey.OP_READ;
+                if (!writeQueue.isEmpty())
+                    ops |= SelectionKey.OP_WRITE;
+                key = channel.register(loop.selector(), ops, this);
+            }
+        } catch (Throwable t) {
+            onClosed(t);
+            fatalClose();
+        }
+    }
+
+    // called on the loop when the channel is readable
+    void onReadable() {
+        try {
+            // read available data
+            int read = channel.read(readBuffer);
+            if (read == -1) {
+                onClosed(null);
+                fatalClose();
+                return;
+            }
+
+            // decode and handle all complete frames
+            Executor executor = loopGroup.handlerExecutor();
+            readBuffer.flip();
+            int needed = 0;
+            while (readBuffer.remaining() >= FRAME_HEADER_SIZE && active.get()) {
+                // read header
+                int start    = readBuffer.position();
+                byte flags   = readBuffer.get(start);
+                int typeHash = readBuffer.getInt(start + 1);
+                int length   = readBuffer.getInt(start + 5);
+                checkFrameLength(length);
+
+                // wait for the rest of the frame
+                if (readBuffer.remaining() < FRAME_HEADER_SIZE + length) {
+                    needed = FRAME_HEADER_SIZE + length;
+                    break;
+                }
+
+                ByteBuffer payload = readBuffer.slice(start + FRAME_HEADER_SIZE, length);
+                readBuffer.position(start + FRAME_HEADER_SIZE + length);
+                if (executor == null) {
+                    // decode the payload in place and handle packet
+                    Packet packet = decodePacket(flags, typeHash, payload);
+                    if (packet != null)
+                        handle(packet);
+                } else {
+                    // copy the payload out of the read buffer
+                    // and pass it on to the handler executor
+                    ByteBuffer copy = ByteBufferPool.HEAP.acquire(length);
+                    copy.put(payload).flip();
+                    dispatch(executor, new Frame(flags, typeHash, copy));
+                }
+            }
+
+            readBuffer.compact();
+
+            // grow the buffer once it is filled by the pending
+            // frame, not to the announced length right away, so
+            // a peer can not make it allocate without sending
+            if (needed > readBuffer.capacity() && !readBuffer.hasRemaining()) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.min(needed, readBuffer.capacity() * 2));
+                readBuffer.flip();
+                grown.put(readBuffer);
+                readBuffer = grown;
+            } else if (readBuffer.position() == 0 && readBuffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+                // drop the large buffer once drained
+                readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+            }
+        } catch (Throwable t) {
+            onClosed(t);
+            fatalClose();
+        }
+    }
+
+    // a received frame with its payload
+    // in a pooled heap buffer
+    record Frame(byte flags, int typeHash, ByteBuffer payload) { }
+
+    // queues the frame and schedules handling the
+    // queued frames if that is not scheduled yet
+    private void dispatch(Executor executor, Frame frame) {
+        handleQueue.add(frame);
+        if (!handling.compareAndSet(false, true))
+            return;
+
+        try {
+            executor.execute(this::handleQueued);
+        } catch (RejectedExecutionException e) {
+            // handle on the loop instead
+            handleQueued();
+        }
+    }
+
+    // decodes and handles the queued frames in the
+    // order they were received, the frames are decoded
+    // here too so profiles set by handlers are used
+    // for the frames received after
+    private void handleQueued() {
+        do {
+            Frame frame;
+            while ((frame = handleQueue.poll()) != null) {
+                try {
+                    if (!active.get())
+                        continue;
+                    Packet packet = decodePacket(frame.flags(), frame.typeHash(), frame.payload());
+                    if (packet != null)
+                        handle(packet);
+                } catch (Throwable t) {
+                    onClosed(t);
+                    fatalClose();
+                } finally {
+                    ByteBufferPool.HEAP.release(frame.payload());
+                }
+            }
+
+            handling.set(false);
+        } while (!handleQueue.isEmpty() && handling.compareAndSet(false, true));
+    }
+
+    // called on the loop when the channel is writable
+    void onWritable() {
+        try {
+            synchronized (writeQueue) {
+                // write queued data
+                ByteBuffer buf;
+                while ((buf = writeQueue.peek()) != null) {
+                    channel.write(buf);
+                    if (buf.hasRemaining())
+                        return;
+                    ByteBufferPool.DIRECT.release(writeQueue.poll());
+                }
+
+                // everything written
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        } catch (Throwable t) {
+            onClosed(t);
+            fatalClose();
+        }
+    }
+
+    // handles the disconnect once
+    void onClosed(Throwable t) {
+        if (!closed.compareAndSet(false, true))
+            return;
+        active.set(false);
+
+        if (disconnectHandler != null)
+            disconnectHandler.accept(t);
+    }
+
+}
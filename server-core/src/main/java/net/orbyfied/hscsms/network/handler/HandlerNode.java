@@ -9,6 +9,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @SuppressWarnings("rawtypes")
 public class HandlerNode {
@@ -52,9 +53,13 @@ public class HandlerNode {
     // the parent of this node
     final HandlerNode parent;
 
-    // the children of this node
-    List<HandlerNode> children = new ArrayList<>();
-    Map<PacketType<? extends Packet>, HandlerNode> childDirectPredicateType
+    // the children of this node, copied on
+    // write so nodes can remove themselves
+    // while the packet is being handled
+    List<HandlerNode> children = new CopyOnWriteArrayList<>();
+    // the children mapped by type, in order
+    // of registration per type
+    Map<PacketType<? extends Packet>, List<HandlerNode>> childDirectPredicateType
             = new HashMap<>();
 
     // the predicate
@@ -78,7 +83,7 @@ public class HandlerNode {
         node.directPredicateType = type;
         node.predicate = (handler, node1, packet) -> packet.type() == type;
         children.add(node);
-        childDirectPredicateType.put(type, node);
+        childDirectPredicateType.computeIfAbsent(type, t -> new CopyOnWriteArrayList<>()).add(node);
         return node;
     }
 
@@ -92,7 +97,12 @@ public class HandlerNode {
         if (parent != null) {
             parent.children.remove(this);
             if (directPredicateType != null) {
-                parent.childDirectPredicateType.remove(directPredicateType);
+                List<HandlerNode> typed = parent.childDirectPredicateType.get(directPredicateType);
+                if (typed != null) {
+                    typed.remove(this);
+                    if (typed.isEmpty())
+                        parent.childDirectPredicateType.remove(directPredicateType);
+                }
             }
         }
     }
@@ -115,14 +125,18 @@ public class HandlerNode {
         }
 
         // try and get fast mapped children
-        HandlerNode child;
-        if ((child = childDirectPredicateType.get(packet.type())) != null) {
-            if ((result = child.handle(handler, packet)).chain() == ChainAction.HALT)
-                return result;
+        List<HandlerNode> typed;
+        if ((typed = childDirectPredicateType.get(packet.type())) != null) {
+            for (HandlerNode child : typed)
+                if ((result = child.handle(handler, packet)).chain() == ChainAction.HALT)
+                    return result;
         }
 
-        // iterate children and call
+        // iterate children and call, skipping
+        // the already handled type mapped ones
         for (HandlerNode node : children) {
+            if (node.directPredicateType != null)
+                continue;
             if (node.predicate.test(handler, node, packet))
                 if ((result = node.handle(handler, packet)).chain() == ChainAction.HALT)
                     return result;
@@ -0,0 +1,178 @@
+package net.orbyfied.hscsms.network.handler;
+
+import net.orbyfied.hscsms.service.Logging;
+import net.orbyfied.hscsms.util.worker.SafeWorker;
+import net.orbyfied.j8.util.logging.Logger;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed group of selector threads which
+ * multiplex the IO of many channel network
+ * handlers, instead of using a thread for
+ * each connection. Received packets are handled
+ * on the handler executor if one is set, so the
+ * loops only do IO.
+ */
+public class SelectorLoopGroup {
+
+    static final Logger LOGGER = Logging.getLogger("SelectorLoops");
+
+    // the name of this group
+    final String name;
+    // the event loops
+    final Loop[] loops;
+    // the index of the next loop to assign
+    final AtomicInteger next = new AtomicInteger();
+    // the executor packets are handled on,
+    // null to handle them on the loops
+    volatile Executor handlerExecutor;
+
+    public SelectorLoopGroup(String name, int threads) {
+        if (threads <= 0)
+            threads = Runtime.getRuntime().availableProcessors();
+        this.name  = name;
+        this.loops = new Loop[threads];
+
+        try {
+            for (int i = 0; i < threads; i++)
+                loops[i] = new Loop(name + "-" + i);
+        } catch (IOException e) {
+            throw new IllegalStateException("failed to open selector", e);
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int size() {
+        return loops.length;
+    }
+
+    public Executor handlerExecutor() {
+        return handlerExecutor;
+    }
+
+    /**
+     * Sets the executor the received packets
+     * are decoded and handled on. The packets of
+     * a connection are still handled in order.
+     * @param executor The executor, or null to
+     *                 handle them on the loops.
+     * @return This.
+     */
+    public SelectorLoopGroup withHandlerExecutor(Executor executor) {
+        this.handlerExecutor = executor;
+        return this;
+    }
+
+    public SelectorLoopGroup start() {
+        for (Loop loop : loops)
+            loop.commence();
+        return this;
+    }
+
+    public void shutdown() {
+        for (Loop loop : loops) {
+            loop.setActive(false);
+            loop.selector.wakeup();
+        }
+    }
+
+    /**
+     * Assigns the handler to the next loop
+     * and registers its channel with it.
+     * @param handler The handler.
+     * @return The loop it was assigned to.
+     */
+    public Loop register(ChannelNetworkHandler handler) {
+        Loop loop = loops[Math.floorMod(next.getAndIncrement(), loops.length)];
+        loop.execute(() -> handler.register(loop));
+        return loop;
+    }
+
+    /* ---- Loop ---- */
+
+    public class Loop extends SafeWorker {
+
+        // the selector
+        final Selector selector;
+        // tasks to be executed on the loop
+        final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        Loop(String name) throws IOException {
+            super(name);
+            this.selector = Selector.open();
+            setDaemon(true);
+        }
+
+        public Selector selector() {
+            return selector;
+        }
+
+        /**
+         * Schedules a task to be executed
+         * on this loop and wakes it up.
+         * @param task The task.
+         */
+        public void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        public boolean inLoop() {
+            return Thread.currentThread() == this;
+        }
+
+        @Override
+        public void runSafe() throws Throwable {
+            while (shouldRun()) {
+                selector.select();
+
+                // run scheduled tasks
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        LOGGER.err(getName() + ": Error in scheduled task");
+                        t.printStackTrace(Logging.ERR);
+                    }
+                }
+
+                // process selected keys
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+
+                    ChannelNetworkHandler handler = (ChannelNetworkHandler) key.attachment();
+                    try {
+                        if (key.isValid() && key.isReadable())
+                            handler.onReadable();
+                        if (key.isValid() && key.isWritable())
+                            handler.onWritable();
+                    } catch (CancelledKeyException ignored) {
+                        // closed concurrently
+                    }
+                }
+            }
+
+            // close all channels
+            for (SelectionKey key : selector.keys())
+                ((ChannelNetworkHandler) key.attachment()).fatalClose();
+            selector.close();
+        }
+
+    }
+
+}
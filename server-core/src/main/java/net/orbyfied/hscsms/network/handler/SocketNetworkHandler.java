@@ -6,12 +6,18 @@ import net.orbyfied.hscsms.network.Packet;
 import net.orbyfied.hscsms.network.PacketType;
 import net.orbyfied.hscsms.security.EncryptionProfile;
 import net.orbyfied.hscsms.service.Logging;
+import net.orbyfied.hscsms.util.data.ByteBufferInputStream;
+import net.orbyfied.hscsms.util.data.ByteBufferOutputStream;
+import net.orbyfied.hscsms.util.data.ByteBufferPool;
+import net.orbyfied.hscsms.util.worker.VirtualThreads;
 
 import java.io.*;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 /**
@@ -22,13 +28,17 @@ import java.util.function.Consumer;
 public class SocketNetworkHandler extends NetworkHandler<SocketNetworkHandler> {
 
     // async executor service
-    Executor executor = Executors.newSingleThreadExecutor();
+    // created lazily so it can be virtual
+    ExecutorService executor;
 
     // the socket
     Socket socket;
     // the data streams
     DataInputStream inputStream;
     DataOutputStream outputStream;
+    // lock for writing whole frames, not a monitor
+    // so blocking writes do not pin virtual threads
+    final ReentrantLock writeLock = new ReentrantLock();
 
     // disconnect handler
     Consumer<Throwable> disconnectHandler;
@@ -66,6 +76,30 @@ public class SocketNetworkHandler extends NetworkHandler<SocketNetworkHandler> {
         return this;
     }
 
+    /**
+     * Get the executor used for asynchronous
+     * sending, creating it if needed.
+     * @return The executor.
+     */
+    protected synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = usesVirtualThreads() ?
+                    Executors.newSingleThreadExecutor(VirtualThreads.factory("NHSender-")) :
+                    Executors.newSingleThreadExecutor();
+        }
+
+        return executor;
+    }
+
+    /**
+     * Shuts down the executor used for asynchronous
+     * sending, if created. Queued sends are still done.
+     */
+    protected synchronized void shutdownExecutor() {
+        if (executor != null)
+            executor.shutdown();
+    }
+
     @Override
     protected boolean canHandleAsync(Packet packet) {
         return false;
@@ -86,6 +120,8 @@ public class SocketNetworkHandler extends NetworkHandler<SocketNetworkHandler> {
             e.printStackTrace(Logging.ERR);
         }
 
+        shutdownExecutor();
+
         return this;
     }
 
@@ -113,30 +149,14 @@ public class SocketNetworkHandler extends NetworkHandler<SocketNetworkHandler> {
     }
 
     public SocketNetworkHandler sendSyncRaw(Packet packet) {
-        try {
-            // write packet type
-            outputStream.writeByte(/* unencrypted */ 0);
-            outputStream.writeInt(packet.type().identifier().hashCode());
-
-            // serialize packet
-            packet.type().serializer().serialize(packet.type(), packet, outputStream);
-
-            // flush
-            outputStream.flush();
-
-            // return
-            return this;
-        } catch (Throwable t) {
-            t.printStackTrace(Logging.ERR);
-            return this;
-        }
+        return sendFrame(packet, null);
     }
 
     public CompletableFuture<SocketNetworkHandler> sendAsyncRaw(final Packet packet) {
         return CompletableFuture.supplyAsync(() -> {
             sendSyncRaw(packet);
             return this;
-        }, executor);
+        }, executor());
     }
 
     public SocketNetworkHandler sendSync(Packet packet) {
@@ -151,36 +171,38 @@ public class SocketNetworkHandler extends NetworkHandler<SocketNetworkHandler> {
         return CompletableFuture.supplyAsync(() -> {
             sendSync(packet);
             return this;
-        }, executor);
+        }, executor());
     }
 
     public SocketNetworkHandler sendSyncEncrypted(Packet packet, EncryptionProfile encryption) {
-        try {
-            // create output stream
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            DataOutputStream stream    = encryption.encryptingOutputStream(baos).toDataStream();
-
-            // serialize packet
-            packet.type().serializer().serialize(packet.type(), packet, stream);
-            stream.flush();
-
-            // write packet type unencrypted
-            outputStream.writeByte(/* encrypted */ 1);
-            outputStream.writeInt(packet.type().identifier().hashCode());
-
-            // get encrypted bytes and write
-            byte[] encrypted = baos.toByteArray();
-            outputStream.writeInt(encrypted.length); // write length
-            outputStream.write(encrypted);
+        return sendFrame(packet, encryption);
+    }
 
-            // flush
-            outputStream.flush();
+    // encodes and writes a frame to the stream, using heap
+    // buffers because the stream writes from their array
+    // and a direct buffer would have to be copied into one
+    private SocketNetworkHandler sendFrame(Packet packet, EncryptionProfile encryption) {
+        ByteBuffer frame = null;
+        try {
+            // encode packet and write frame, encrypted
+            // frames are encoded under the lock so they
+            // are sent in the order they were encrypted in
+            writeLock.lock();
+            try {
+                frame = encodePacket(packet, encryption, ByteBufferPool.HEAP);
+                outputStream.write(frame.array(), frame.arrayOffset(), frame.limit());
+                outputStream.flush();
+            } finally {
+                writeLock.unlock();
+            }
 
             // return
             return this;
         } catch (Throwable t) {
             t.printStackTrace(Logging.ERR);
             return this;
+        } finally {
+            ByteBufferPool.HEAP.release(frame);
         }
     }
 
@@ -189,7 +211,177 @@ public class SocketNetworkHandler extends NetworkHandler<SocketNetworkHandler> {
         return CompletableFuture.supplyAsync(() -> {
             sendSyncEncrypted(packet, profile);
             return this;
-        }, executor);
+        }, executor());
+    }
+
+    /* ---- Codec ---- */
+
+    /*
+        Wire format of a frame:
+          byte  flags   (1 if the payload is encrypted)
+          int   type    (hash of the packet type identifier)
+          int   length  (length of the payload)
+          byte* payload (serialized, possibly encrypted packet)
+     */
+
+    /**
+     * The size of the frame header.
+     */
+    public static final int FRAME_HEADER_SIZE = 9;
+
+    /**
+     * The maximum accepted payload length.
+     */
+    public static final int MAX_FRAME_SIZE = 1 << 24;
+
+    // the flag set for encrypted payloads
+    static final byte FLAG_ENCRYPTED = 1;
+
+    /**
+     * Encodes a packet into a frame in a buffer
+     * acquired from the provided pool. If an encryption
+     * profile is given the payload is encrypted.
+     * The buffer should be released to the pool
+     * after it has been written.
+     * @param packet The packet.
+     * @param encryption The encryption profile or null.
+     * @param pool The buffer pool.
+     * @return The flipped buffer containing the frame.
+     */
+    protected ByteBuffer encodePacket(Packet packet,
+                                      EncryptionProfile encryption,
+                                      ByteBufferPool pool) throws Throwable {
+        ByteBufferOutputStream bout = new ByteBufferOutputStream(pool);
+        try {
+            // write header, length is set after
+            DataOutputStream out = new DataOutputStream(bout);
+            out.writeByte(encryption != null ? FLAG_ENCRYPTED : 0);
+            out.writeInt(packet.type().identifier().hashCode());
+            out.writeInt(0);
+
+            // serialize packet
+            if (encryption == null) {
+                packet.type().serializer().serialize(packet.type(), packet, out);
+            } else {
+                DataOutputStream stream = encryption.encryptingOutputStream(out).toDataStream();
+                packet.type().serializer().serialize(packet.type(), packet, stream);
+                stream.flush();
+            }
+
+            // set length and flip
+            ByteBuffer buf = bout.buffer();
+            buf.putInt(5, buf.position() - FRAME_HEADER_SIZE);
+            return buf.flip();
+        } catch (Throwable t) {
+            bout.release();
+            throw t;
+        }
+    }
+
+    /**
+     * Decodes the payload of a frame,
+     * decrypting it if needed.
+     * @param flags The frame flags.
+     * @param typeHash The packet type hash.
+     * @param payload The payload buffer.
+     * @return The packet or null if the type is unknown.
+     */
+    protected Packet decodePacket(byte flags,
+                                  int typeHash,
+                                  ByteBuffer payload) throws Throwable {
+        // get packet type
+        PacketType<? extends Packet> packetType =
+                manager.getByHash(typeHash);
+        if (packetType == null)
+            return null;
+
+        // prepare stream
+        DataInputStream stream;
+        if ((flags & FLAG_ENCRYPTED) == 0) {
+            // put unencrypted stream
+            stream = new DataInputStream(new ByteBufferInputStream(payload));
+        } else {
+            // check for decryption profile
+            if (encryptionProfile == null) {
+                throw new IllegalArgumentException("can not decrypt encrypted packet, no decryption profile set");
+            }
+
+            // create encrypted input stream
+            stream = encryptionProfile.decryptingInputStream(new ByteBufferInputStream(payload)).toDataStream();
+        }
+
+        // deserialize
+        return packetType.deserializer()
+                .deserialize(packetType, stream);
+    }
+
+    /**
+     * Checks the length read from a frame header.
+     * @param length The payload length.
+     */
+    protected static void checkFrameLength(int length) throws IOException {
+        if (length < 0 || length > MAX_FRAME_SIZE)
+            throw new IOException("invalid frame length " + length + ", max " + MAX_FRAME_SIZE);
+    }
+
+    /**
+     * Reads the next frame from the provided
+     * stream and decodes the packet.
+     * @param in The input stream.
+     * @return The packet or null if the type is unknown.
+     */
+    protected Packet readPacket(DataInputStream in) throws Throwable {
+        // read header
+        byte flags     = in.readByte();
+        int typeHash   = in.readInt();
+        int length     = in.readInt();
+        checkFrameLength(length);
+
+        // read payload and decode packet
+        ByteBuffer payload = readPayload(in, length);
+        try {
+            return decodePacket(flags, typeHash, payload);
+        } finally {
+            ByteBufferPool.HEAP.release(payload);
+        }
+    }
+
+    /**
+     * Reads a payload into the array of a heap buffer,
+     * as the stream can not read into a direct buffer.
+     * The buffer is grown as the bytes arrive, so a peer
+     * can not make it allocate the length it announces
+     * without sending the data.
+     * @param in The input stream.
+     * @param length The payload length.
+     * @return The flipped buffer, to be released to
+     *         the heap buffer pool.
+     */
+    protected static ByteBuffer readPayload(DataInputStream in, int length) throws IOException {
+        ByteBuffer payload = ByteBufferPool.HEAP.acquire();
+        try {
+            int read = 0;
+            while (read < length) {
+                // grow the full buffer
+                if (read == payload.capacity()) {
+                    ByteBuffer grown = ByteBuffer.allocate(Math.min(length, payload.capacity() * 2));
+                    grown.put(payload.array(), payload.arrayOffset(), read);
+                    ByteBufferPool.HEAP.release(payload);
+                    payload = grown;
+                }
+
+                int n = in.read(payload.array(), payload.arrayOffset() + read,
+                        Math.min(length, payload.capacity()) - read);
+                if (n == -1)
+                    throw new EOFException("end of stream after " + read + " of " + length + " payload bytes");
+                read += n;
+            }
+
+            return payload.position(0).limit(length);
+        } catch (Throwable t) {
+            ByteBufferPool.HEAP.release(payload);
+            throw t;
+        }
     }
 
     public boolean isOpen() {
@@ -219,45 +411,14 @@ public class SocketNetworkHandler extends NetworkHandler<SocketNetworkHandler> {
             // main network loop
             try {
                 while (!socket.isClosed() && active.get()) {
-                    // listen for incoming packets
-                    byte encryptedFlag   = inputStream.readByte();
-                    int packetTypeId = inputStream.readInt();
-                    // get packet type
-                    PacketType<? extends Packet> packetType =
-                            manager.getByHash(packetTypeId);
-
-//                    System.out.println("RECEIVED PACKET id-hash: " + packetTypeId + ", type: "
-//                            + (packetType != null ? packetType.identifier().toString() : "null"));
+                    // read next packet
+                    Packet packet = readPacket(inputStream);
 
                     // handle packet
-                    if (packetType != null) {
+                    if (packet != null) {
                         // increment packet count
                         pC++;
 
-                        // prepare stream
-                        DataInputStream stream;
-                        if (encryptedFlag == 0) {
-                            // put unencrypted stream
-                            stream = inputStream;
-                        } else {
-                            // check for decryption profile
-                            if (encryptionProfile == null) {
-                                throw new IllegalArgumentException("can not decrypt encrypted packet, no decryption profile set");
-                            }
-
-                            // read encrypted bytes
-                            int dataLen = inputStream.readInt();
-                            byte[] encrypted = inputStream.readNBytes(dataLen);
-
-                            // create encrypted input stream
-                            ByteArrayInputStream bais = new ByteArrayInputStream(encrypted);
-                            stream = encryptionProfile.decryptingInputStream(bais).toDataStream();
-                        }
-
-                        // deserialize
-                        Packet packet = packetType.deserializer()
-                                .deserialize(packetType, stream);
-
                         // handle
                         SocketNetworkHandler.this.handle(packet);
                     }
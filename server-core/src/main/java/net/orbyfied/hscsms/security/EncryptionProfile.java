@@ -7,9 +7,12 @@ import javax.crypto.Cipher;
 import javax.crypto.NoSuchPaddingException;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Objects;
 
 /**
  * General utility encryption handler, replacement
@@ -205,6 +208,44 @@ public abstract class EncryptionProfile<S extends EncryptionProfile> {
         Large Data Encryption and Decryption
      */
 
+    /**
+     * Encrypts a span of bytes directly
+     * into the destination array.
+     * @param src The source array.
+     * @param off The offset in the source.
+     * @param len The amount of bytes.
+     * @param dst The destination array.
+     * @param dstOff The offset in the destination.
+     * @return The amount of bytes written.
+     */
+    public int encrypt(byte[] src, int off, int len, byte[] dst, int dstOff) throws GeneralSecurityException {
+        if (cipher == null)
+            throw new IllegalStateException();
+        synchronized (cipher) {
+            cipher.init(Cipher.ENCRYPT_MODE, getEncryptionKey());
+            return cipher.doFinal(src, off, len, dst, dstOff);
+        }
+    }
+
+    /**
+     * Decrypts a span of bytes directly
+     * into the destination array.
+     * @param src The source array.
+     * @param off The offset in the source.
+     * @param len The amount of bytes.
+     * @param dst The destination array.
+     * @param dstOff The offset in the destination.
+     * @return The amount of bytes written.
+     */
+    public int decrypt(byte[] src, int off, int len, byte[] dst, int dstOff) throws GeneralSecurityException {
+        if (cipher == null)
+            throw new IllegalStateException();
+        synchronized (cipher) {
+            cipher.init(Cipher.DECRYPT_MODE, getDecryptionKey());
+            return cipher.doFinal(src, off, len, dst, dstOff);
+        }
+    }
+
     /**
      * Output stream which wraps an output stream,
      * writing into a buffer which is encrypted at
@@ -221,34 +262,70 @@ public abstract class EncryptionProfile<S extends EncryptionProfile> {
             this.stream = stream;
         }
 
-        // the encrypted data buffer
-        byte[] buf = new byte[blockSize];
-        // the index in the buffer to read to
+        // the plain data buffer
+        final byte[] buf = new byte[blockSize];
+        // the index in the buffer to write to
         int bi = 0;
+        // the encrypted block buffer
+        final byte[] out = new byte[paddedBlockSize];
 
         @Override
         public void write(int b) throws IOException {
             // put byte
-            byte by = (byte) b;
-            buf[bi++] = by;
+            buf[bi++] = (byte) b;
 
-            // flush and write encrypted if
+            // write encrypted if
             // the buffer is full
-            if (bi >= buf.length) {
-                flush();
+            if (bi >= blockSize)
+                writeBlock(buf, 0);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            while (len > 0) {
+                // encrypt whole blocks directly
+                // from the source array
+                if (bi == 0 && len >= blockSize) {
+                    writeBlock(b, off);
+                    off += blockSize;
+                    len -= blockSize;
+                    continue;
+                }
+
+                // copy into buffer
+                int n = Math.min(len, blockSize - bi);
+                System.arraycopy(b, off, buf, bi, n);
+                bi  += n;
+                off += n;
+                len -= n;
+
+                if (bi >= blockSize)
+                    writeBlock(buf, 0);
+            }
+        }
 
-                // allocate new empty buffer
-                buf = new byte[blockSize];
-                // reset buffer index
+        // encrypts and writes a full block
+        private void writeBlock(byte[] src, int off) throws IOException {
+            try {
+                int n = encrypt(src, off, blockSize, out, 0);
+                stream.write(out, 0, n);
                 bi = 0;
+            } catch (GeneralSecurityException e) {
+                throw new IOException("failed to encrypt block", e);
             }
         }
 
         @Override
         public void flush() throws IOException {
-            // encrypt and write buffer
-            byte[] encrypted = encrypt(buf);
-            stream.write(encrypted);
+            // encrypt and write the
+            // zero padded last block
+            if (bi > 0) {
+                Arrays.fill(buf, bi, blockSize, (byte) 0);
+                writeBlock(buf, 0);
+            }
+
+            stream.flush();
         }
 
         public DataOutputStream toDataStream() {
@@ -270,26 +347,109 @@ public abstract class EncryptionProfile<S extends EncryptionProfile> {
             this.stream = stream;
         }
 
+        // the encrypted block buffer
+        final byte[] block = new byte[blockSize];
         // the decrypted data buffer
-        byte[] buf = new byte[blockSize];
-        // the amount of indices read from the buffer
-        int used = 0;
+        final byte[] buf = new byte[blockSize];
+        // the read position and limit in the buffer
+        int pos = 0;
+        int lim = 0;
+
+        // reads the next encrypted block into
+        // the destination, returns the amount of
+        // decrypted bytes or -1 at the end
+        private int readBlock(byte[] dst, int off) throws IOException {
+            int read = stream.readNBytes(block, 0, blockSize);
+            if (read == 0)
+                return -1;
+            if (read < blockSize)
+                throw new EOFException("truncated block, got " + read + " of " + blockSize + " bytes");
+
+            try {
+                return decrypt(block, 0, blockSize, dst, off);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("failed to decrypt block", e);
+            }
+        }
+
+        // decrypts the next block into the
+        // buffer, returns false at the end
+        private boolean fill() throws IOException {
+            int n = readBlock(buf, 0);
+            if (n == -1)
+                return false;
+            pos = 0;
+            lim = n;
+            return true;
+        }
 
         @Override
         public int read() throws IOException {
             // decrypt next block if used
-            if (used == 0 || used >= buf.length) {
-                // read next encrypted block
-                byte[] encrypted = stream.readNBytes(blockSize);
-                // decrypt and put in buffer
-                buf = decrypt(encrypted);
-            }
+            if (pos >= lim && !fill())
+                return -1;
 
             // read decrypted byte
-            byte by = buf[used++];
+            return buf[pos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0)
+                return 0;
+
+            int n = 0;
+            while (n < len) {
+                if (pos >= lim) {
+                    // only block for the first bytes
+                    if (n > 0 && stream.available() < blockSize)
+                        break;
+
+                    // decrypt whole blocks directly
+                    // into the destination array
+                    if (len - n >= blockSize) {
+                        int d = readBlock(b, off + n);
+                        if (d == -1)
+                            break;
+                        n += d;
+                        continue;
+                    }
+
+                    if (!fill())
+                        break;
+                }
+
+                // copy from buffer
+                int c = Math.min(len - n, lim - pos);
+                System.arraycopy(buf, pos, b, off + n, c);
+                pos += c;
+                n   += c;
+            }
+
+            return n == 0 ? -1 : n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n) {
+                if (pos >= lim && !fill())
+                    break;
+
+                int c = (int) Math.min(n - skipped, lim - pos);
+                pos     += c;
+                skipped += c;
+            }
 
-            // return
-            return by;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            // buffered bytes and the bytes
+            // of complete blocks available
+            return (lim - pos) + (stream.available() / blockSize) * unpaddedBlockSize;
         }
 
         public DataInputStream toDataStream() {
@@ -0,0 +1,345 @@
+package net.orbyfied.hscsms.security;
+
+import net.orbyfied.hscsms.util.data.ByteBufferInputStream;
+import net.orbyfied.hscsms.util.data.ByteBufferOutputStream;
+import net.orbyfied.hscsms.util.data.ByteBufferPool;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Symmetric encryption profile for authenticated stream
+ * ciphers like AES/GCM. Instead of encrypting block by block
+ * a whole message is encrypted in a single cipher pass, in
+ * place in a pooled buffer. Every message is prefixed with
+ * its own nonce, made of the side which sent it and a counter,
+ * and is followed by the authentication tag. Both sides use
+ * the same key, so the side keeps their nonces apart, and
+ * only messages of the other side with a counter higher than
+ * the last received one are accepted, so recorded or reflected
+ * messages can not be replayed. Messages must therefore be
+ * sent in the order they were encrypted in.
+ */
+public class StreamingEncryptionProfile extends SymmetricEncryptionProfile {
+
+    public static final int NONCE_SIZE = 12;
+    public static final int TAG_SIZE   = 16;
+
+    /**
+     * The side of the connection a profile is used on.
+     */
+    public enum Side {
+        CLIENT,
+        SERVER;
+
+        // get the other side
+        Side other() {
+            return this == CLIENT ? SERVER : CLIENT;
+        }
+    }
+
+    /* --------------------------------- */
+
+    // the cipher used for decryption, the
+    // inherited cipher is used for encryption
+    protected Cipher decryptCipher;
+
+    // the side this profile is used on
+    volatile Side side;
+
+    // the counter of sent messages
+    final AtomicLong nonceCounter = new AtomicLong();
+    // the counter of the last received message,
+    // guarded by the decryption cipher
+    long receivedCounter = -1;
+
+    public StreamingEncryptionProfile(String algorithm, String mode, String padding, String keyAlgorithm, int keyLength) {
+        super(algorithm, mode, padding, keyAlgorithm, keyLength);
+        this.decryptCipher = getCipherSafe(algorithm + "/" + mode + "/" + padding);
+    }
+
+    public Cipher getDecryptCipher() {
+        return decryptCipher;
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    /**
+     * Sets the side of the connection this profile
+     * is used on, which is required to encrypt and
+     * decrypt messages.
+     * @param side The side.
+     * @return This.
+     */
+    public StreamingEncryptionProfile withSide(Side side) {
+        this.side = side;
+        return this;
+    }
+
+    // get the side or throw if not set
+    private Side side() {
+        Side side = this.side;
+        if (side == null)
+            throw new IllegalStateException("no side set on streaming encryption profile");
+        return side;
+    }
+
+    // writes the next nonce
+    private byte[] nextNonce() {
+        Side side = side();
+        long counter = nonceCounter.getAndIncrement();
+        return ByteBuffer.allocate(NONCE_SIZE)
+                .putInt(side.ordinal())
+                .putLong(counter)
+                .array();
+    }
+
+    /**
+     * Encrypts the data in the buffer in place. The data
+     * must be located at {@code off}, with space for the
+     * nonce before it and space for the tag after it.
+     * @param buf The buffer.
+     * @param off The offset of the plain data, at least {@link #NONCE_SIZE}.
+     * @param len The length of the plain data.
+     * @return The length of the message, starting at {@code off - NONCE_SIZE}.
+     */
+    public int encryptInPlace(ByteBuffer buf, int off, int len) throws GeneralSecurityException {
+        byte[] nonce = nextNonce();
+
+        int written;
+        synchronized (cipher) {
+            cipher.init(Cipher.ENCRYPT_MODE, getEncryptionKey(), new GCMParameterSpec(TAG_SIZE * 8, nonce));
+            ByteBuffer in  = buf.duplicate().limit(off + len).position(off);
+            ByteBuffer out = buf.duplicate().limit(buf.capacity()).position(off);
+            written = cipher.doFinal(in, out);
+        }
+
+        // put nonce in front
+        buf.put(off - NONCE_SIZE, nonce);
+        return NONCE_SIZE + written;
+    }
+
+    /**
+     * Decrypts the remaining message in the buffer in place.
+     * The message must have been sent by the other side,
+     * after the last message received.
+     * @param buf The buffer, positioned at the start of the message.
+     * @return A view of the decrypted data.
+     * @throws GeneralSecurityException If the message was not authentic,
+     *                                  was reflected or replayed.
+     */
+    public ByteBuffer decryptInPlace(ByteBuffer buf) throws GeneralSecurityException {
+        if (buf.remaining() < NONCE_SIZE + TAG_SIZE)
+            throw new GeneralSecurityException("message too short: " + buf.remaining() + " bytes");
+
+        // read nonce
+        byte[] nonce = new byte[NONCE_SIZE];
+        buf.get(nonce);
+        ByteBuffer nonceBuf = ByteBuffer.wrap(nonce);
+        int sender   = nonceBuf.getInt();
+        long counter = nonceBuf.getLong();
+
+        // check it was sent by the other side
+        if (sender != side().other().ordinal())
+            throw new GeneralSecurityException("message not sent by the other side");
+
+        int start = buf.position();
+        ByteBuffer out = buf.duplicate();
+        synchronized (decryptCipher) {
+            // check it was not received before, only
+            // accepted once the tag has been verified
+            if (counter <= receivedCounter)
+                throw new GeneralSecurityException("replayed message, counter " + counter +
+                        " not after " + receivedCounter);
+
+            decryptCipher.init(Cipher.DECRYPT_MODE, getDecryptionKey(), new GCMParameterSpec(TAG_SIZE * 8, nonce));
+            decryptCipher.doFinal(buf, out);
+            receivedCounter = counter;
+        }
+
+        // return decrypted region
+        return out.limit(out.position()).position(start);
+    }
+
+    @Override
+    public byte[] encrypt(byte[] bytes) {
+        try {
+            ByteBuffer buf = ByteBuffer.allocate(NONCE_SIZE + bytes.length + TAG_SIZE);
+            buf.put(NONCE_SIZE, bytes);
+            encryptInPlace(buf, NONCE_SIZE, bytes.length);
+            return buf.array();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public byte[] decrypt(byte[] bytes) {
+        try {
+            ByteBuffer plain = decryptInPlace(ByteBuffer.wrap(bytes.clone()));
+            byte[] result = new byte[plain.remaining()];
+            plain.get(result);
+            return result;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public int encrypt(byte[] src, int off, int len, byte[] dst, int dstOff) throws GeneralSecurityException {
+        ByteBuffer buf = ByteBuffer.wrap(dst, dstOff, dst.length - dstOff).slice();
+        buf.put(NONCE_SIZE, src, off, len);
+        return encryptInPlace(buf, NONCE_SIZE, len);
+    }
+
+    @Override
+    public int decrypt(byte[] src, int off, int len, byte[] dst, int dstOff) throws GeneralSecurityException {
+        ByteBuffer plain = decryptInPlace(ByteBuffer.wrap(Arrays.copyOfRange(src, off, off + len)));
+        int n = plain.remaining();
+        plain.get(dst, dstOff, n);
+        return n;
+    }
+
+    @Override
+    public EncryptingOutputStream encryptingOutputStream(OutputStream out) {
+        return new MessageEncryptingOutputStream(out);
+    }
+
+    @Override
+    public DecryptingInputStream decryptingInputStream(InputStream in) {
+        return new MessageDecryptingInputStream(in);
+    }
+
+    /*
+        Streams
+     */
+
+    /**
+     * Buffers everything written in a pooled buffer
+     * and writes it as one encrypted message on flush.
+     */
+    public class MessageEncryptingOutputStream extends EncryptingOutputStream {
+        // the plain data buffer
+        ByteBufferOutputStream plain;
+
+        public MessageEncryptingOutputStream(OutputStream stream) {
+            super(stream);
+            begin();
+        }
+
+        // prepares the buffer for a new message
+        private void begin() {
+            plain = new ByteBufferOutputStream(ByteBufferPool.HEAP);
+            plain.buffer().position(NONCE_SIZE);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (plain == null)
+                begin();
+            plain.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (plain == null)
+                begin();
+            plain.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (plain == null)
+                return;
+
+            try {
+                // encrypt in place
+                int end = plain.buffer().position();
+                plain.ensureRemaining(TAG_SIZE);
+                ByteBuffer buf = plain.buffer();
+                int len = encryptInPlace(buf, NONCE_SIZE, end - NONCE_SIZE);
+
+                // write message
+                stream.write(buf.array(), buf.arrayOffset(), len);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("failed to encrypt message", e);
+            } finally {
+                plain.release();
+                plain = null;
+            }
+        }
+    }
+
+    /**
+     * Reads and decrypts a whole message on the first
+     * read, and then serves the decrypted data.
+     * Decrypts in place if reading from a buffer.
+     */
+    public class MessageDecryptingInputStream extends DecryptingInputStream {
+        // the decrypted data
+        ByteBuffer plain;
+
+        public MessageDecryptingInputStream(InputStream stream) {
+            super(stream);
+        }
+
+        // reads and decrypts the message
+        private ByteBuffer plain() throws IOException {
+            if (plain != null)
+                return plain;
+
+            ByteBuffer data = stream instanceof ByteBufferInputStream bin ?
+                    bin.buffer() : ByteBuffer.wrap(stream.readAllBytes());
+            try {
+                return plain = decryptInPlace(data);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("failed to decrypt message", e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            ByteBuffer buf = plain();
+            if (!buf.hasRemaining())
+                return -1;
+            return buf.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            ByteBuffer buf = plain();
+            if (len == 0)
+                return 0;
+            if (!buf.hasRemaining())
+                return -1;
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            ByteBuffer buf = plain();
+            int c = (int) Math.max(0, Math.min(n, buf.remaining()));
+            buf.position(buf.position() + c);
+            return c;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return plain().remaining();
+        }
+    }
+
+}
@@ -4,21 +4,30 @@ import net.orbyfied.hscsms.common.ProtocolSpec;
 import net.orbyfied.hscsms.common.protocol.DisconnectReason;
 import net.orbyfied.hscsms.core.ServiceManager;
 import net.orbyfied.hscsms.core.resource.ServerResourceManager;
+import net.orbyfied.hscsms.core.resource.impl.ResourceGCService;
+import net.orbyfied.hscsms.core.resource.impl.ResourceWriteBehindService;
+import net.orbyfied.hscsms.core.resource.impl.SnowflakeIdGenerator;
 import net.orbyfied.hscsms.db.Database;
 import net.orbyfied.hscsms.db.DatabaseManager;
 import net.orbyfied.hscsms.db.Login;
+import net.orbyfied.hscsms.db.impl.InMemoryDatabase;
+import net.orbyfied.hscsms.db.impl.MongoAsyncDatabase;
 import net.orbyfied.hscsms.db.impl.MongoDatabase;
 import net.orbyfied.hscsms.network.NetworkManager;
+import net.orbyfied.hscsms.network.handler.SelectorLoopGroup;
 import net.orbyfied.hscsms.network.handler.UtilityNetworkHandler;
 import net.orbyfied.hscsms.security.AsymmetricEncryptionProfile;
+import net.orbyfied.hscsms.server.resource.ResourceSpec;
 import net.orbyfied.hscsms.service.Logging;
 import net.orbyfied.hscsms.util.worker.SafeWorker;
+import net.orbyfied.hscsms.util.worker.VirtualThreads;
 import net.orbyfied.hscsms.util.Values;
 import net.orbyfied.j8.util.logging.Logger;
 
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.nio.channels.ServerSocketChannel;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -46,6 +55,10 @@ public class Server {
     SocketAddress address;
     // the server socket
     ServerSocket socket;
+    // the selector loops, if using the nio transport
+    SelectorLoopGroup selectorLoopGroup;
+    // if client workers should use virtual threads
+    boolean virtualThreads;
 
     // the server utility network handler
     UtilityNetworkHandler networkHandler;
@@ -96,9 +109,37 @@ public class Server {
         // set address
         this.address = address;
 
+        // get network configuration
+        Values netConfig = configuration.contains("network") ?
+                configuration.get("network", Values.class) : new Values();
+        String transport = netConfig.getOrDefault("transport", "socket").toLowerCase();
+
+        // check virtual threads
+        virtualThreads = netConfig.getOrDefault("virtual-threads", false);
+        if (virtualThreads && !VirtualThreads.isSupported()) {
+            logger.err("Virtual threads are not supported by this JVM, using platform threads");
+            virtualThreads = false;
+        }
+
         try {
             // create and bind socket
-            socket = new ServerSocket();
+            switch (transport) {
+                // blocking, a thread per connection
+                case "socket" -> socket = new ServerSocket();
+
+                // non-blocking, multiplexed over selector loops
+                case "nio" -> {
+                    socket = ServerSocketChannel.open().socket();
+                    selectorLoopGroup = new SelectorLoopGroup("SelectorLoop",
+                            netConfig.getOrDefault("event-loop-threads", 0))
+                            .withHandlerExecutor(serviceManager.ioExecutor())
+                            .start();
+                    logger.ok("Started {0} selector loops", selectorLoopGroup.size());
+                }
+
+                default -> throw new IllegalArgumentException("unsupported transport: " + transport);
+            }
+
             socket.bind(address);
 
             logger.ok("Connected server on {0}", address);
@@ -148,6 +189,14 @@ public class Server {
     }
 
     public Server setup() {
+        // configure executors
+        Values executorsConfig = configuration.contains("executors") ?
+                configuration.get("executors", Values.class) : null;
+        if (executorsConfig != null) {
+            serviceManager.ioExecutor().configure(executorsConfig.get("io", Values.class));
+            serviceManager.cpuExecutor().configure(executorsConfig.get("cpu", Values.class));
+        }
+
         // setup databases
         Database db;
         Values dbConfig = configuration.get("database", Values.class);
@@ -160,7 +209,22 @@ public class Server {
                 db.login(Login.ofURI(
                         dbConfig.get("connection-url"),
                         dbConfig.get("database-name")
-                ));
+                ).withOptions(dbConfig));
+            }
+
+            // MongoDB with the asynchronous driver
+            case "mongodb-async" -> {
+                db = new MongoAsyncDatabase(databaseManager, "server");
+                db.login(Login.ofURI(
+                        dbConfig.get("connection-url"),
+                        dbConfig.get("database-name")
+                ).withOptions(dbConfig));
+            }
+
+            // in memory, nothing is persisted
+            case "memory", "in-memory" -> {
+                db = new InMemoryDatabase(databaseManager, "server");
+                db.login(null);
             }
 
             default -> {
@@ -172,9 +236,35 @@ public class Server {
         databaseManager.addDatabase(db);
         resourceManager.database(databaseManager.getDatabase("server"));
 
-        // setup resource manager
+        // setup resource manager, after loading
+        // the resource types so their indexes
+        // are created
+        ResourceSpec.loadSpec(resourceManager);
         resourceManager.setup();
 
+        // configure resource services
+        Values resourcesConfig = configuration.get("resources", Values.class);
+        ResourceWriteBehindService writeBehind = resourceManager.serviceByClass(ResourceWriteBehindService.class);
+        if (resourcesConfig != null && writeBehind != null)
+            writeBehind.configure(resourcesConfig.get("write-behind", Values.class));
+
+        // configure resource IDs, handle events,
+        // the soft cache and the lookups
+        if (resourcesConfig != null) {
+            resourceManager.withIdGenerator(new SnowflakeIdGenerator(resourcesConfig.getOrDefault("node-id", 0)));
+            resourceManager.withHandleEvents(resourcesConfig.getOrDefault("handle-events", true));
+            resourceManager.registry().setSoftCache(resourcesConfig.getOrDefault("soft-cache", true));
+            resourceManager.registry().lookups().configure(resourcesConfig.get("lookups", Values.class));
+        }
+
+        // configure release handling and
+        // eviction of idle resources
+        ResourceGCService gc = resourceManager.serviceByClass(ResourceGCService.class);
+        if (resourcesConfig != null && gc != null) {
+            gc.configure(resourcesConfig.get("gc", Values.class));
+            gc.eviction().configure(resourcesConfig.get("eviction", Values.class));
+        }
+
         // return
         return this;
     }
@@ -230,7 +320,7 @@ public class Server {
                     CompletableFuture.runAsync(() -> {
                         // ready encryption
                         client.readyTopLevelEncryption();
-                    });
+                    }, serviceManager.ioExecutor());
 
                     ServerClient.LOGGER.info("Accepted and started {0}", client);
                 } catch (Exception e) {
@@ -270,6 +360,12 @@ public class Server {
             client.stop();
         }
 
+        // stop selector loops
+        if (selectorLoopGroup != null) {
+            logger.info("Stopping selector loops");
+            selectorLoopGroup.shutdown();
+        }
+
         // close server socket
         if (!socket.isClosed()) {
             try {
@@ -280,6 +376,26 @@ public class Server {
             }
         }
 
+        // handle released resources still
+        // waiting out their grace period
+        ResourceGCService gc = resourceManager.serviceByClass(ResourceGCService.class);
+        if (gc != null) {
+            logger.info("Handling {0} pending resource releases", gc.getQueuedCount());
+            resourceManager.withoutService(gc);
+        }
+
+        // write pending resources
+        ResourceWriteBehindService writeBehind = resourceManager.serviceByClass(ResourceWriteBehindService.class);
+        if (writeBehind != null) {
+            logger.info("Writing {0} pending resources", writeBehind.getPendingCount());
+            resourceManager.withoutService(writeBehind);
+        }
+
+        // finish asynchronous tasks
+        logger.info("Stopping executors");
+        if (!serviceManager.ioExecutor().shutdown(5000) | !serviceManager.cpuExecutor().shutdown(5000))
+            logger.err("Executors did not finish all tasks in time");
+
         // close logger group
         Logging.getGroup().setActive(false);
     }
@@ -294,6 +410,24 @@ public class Server {
         return serviceManager;
     }
 
+    /**
+     * Get the selector loop group used by the
+     * nio transport.
+     * @return The loop group or null if not using nio.
+     */
+    public SelectorLoopGroup selectorLoopGroup() {
+        return selectorLoopGroup;
+    }
+
+    /**
+     * Check if client network workers
+     * run on virtual threads.
+     * @return True if using virtual threads.
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
     /**
      * Get the core network manager.
      * @return The network manager.
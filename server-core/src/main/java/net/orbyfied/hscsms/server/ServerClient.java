@@ -9,10 +9,12 @@ import net.orbyfied.hscsms.common.protocol.handshake.PacketUnboundHandshakeOk;
 import net.orbyfied.hscsms.common.protocol.login.PacketServerboundCreateUser;
 import net.orbyfied.hscsms.core.resource.ServerResourceHandle;
 import net.orbyfied.hscsms.network.handler.ChainAction;
+import net.orbyfied.hscsms.network.handler.ChannelNetworkHandler;
 import net.orbyfied.hscsms.network.handler.HandlerNode;
 import net.orbyfied.hscsms.network.handler.NodeAction;
 import net.orbyfied.hscsms.network.handler.SocketNetworkHandler;
 import net.orbyfied.hscsms.common.protocol.DisconnectReason;
+import net.orbyfied.hscsms.security.StreamingEncryptionProfile;
 import net.orbyfied.hscsms.security.SymmetricEncryptionProfile;
 import net.orbyfied.hscsms.server.resource.User;
 import net.orbyfied.hscsms.service.Logging;
@@ -44,9 +46,11 @@ public class ServerClient {
 
     // the network handler
     SocketNetworkHandler networkHandler;
-    // the client encryption profile
-    SymmetricEncryptionProfile clientEncryptionProfile =
-            ProtocolSpec.newSymmetricEncryptionProfile();
+    // the client encryption profile, created
+    // for the negotiated protocol version
+    SymmetricEncryptionProfile clientEncryptionProfile;
+    // the negotiated protocol version
+    int protocolVersion;
 
     // the user this client has authenticated as
     // this is null at first
@@ -57,11 +61,26 @@ public class ServerClient {
 
     public ServerClient(Server server, Socket socket) {
         this.server = server;
-        networkHandler = new SocketNetworkHandler(
-                server.networkManager(),
-                server.utilityNetworkHandler()
-        )
+
+        // create channel handler if using the nio
+        // transport, otherwise a blocking socket handler
+        SocketNetworkHandler handler;
+        if (server.selectorLoopGroup() != null && socket.getChannel() != null) {
+            handler = new ChannelNetworkHandler(
+                    server.networkManager(),
+                    server.utilityNetworkHandler(),
+                    server.selectorLoopGroup()
+            );
+        } else {
+            handler = new SocketNetworkHandler(
+                    server.networkManager(),
+                    server.utilityNetworkHandler()
+            );
+        }
+
+        networkHandler = handler
                 .owned(this)
+                .virtualThreads(server.usesVirtualThreads())
                 .withDisconnectHandler(this::onDisconnect)
                 .connect(socket);
     }
@@ -158,7 +177,10 @@ public class ServerClient {
         // add handshake handler to client
         networkHandler.node().childForType(PacketServerboundClientKey.TYPE)
                 .<PacketServerboundClientKey>withHandler((handler, node, packet) -> {
-                    // store key
+                    // create profile for the chosen version
+                    // and store key
+                    protocolVersion = ProtocolSpec.negotiateVersion(packet.getProtocolVersion());
+                    clientEncryptionProfile = ProtocolSpec.newSymmetricEncryptionProfile(protocolVersion, StreamingEncryptionProfile.Side.SERVER);
                     clientEncryptionProfile.withKey("secret", packet.getKey());
                     networkHandler
                             .withEncryptionProfile(clientEncryptionProfile)
@@ -195,7 +217,10 @@ public class ServerClient {
                 });
 
         // send public key
-        networkHandler.sendSync(new PacketClientboundPublicKey(server.topLevelEncryption.getPublicKey()));
+        networkHandler.sendSync(new PacketClientboundPublicKey(
+                server.topLevelEncryption.getPublicKey(),
+                ProtocolSpec.PROTOCOL_VERSION
+        ));
 
         // return
         return this;
@@ -254,14 +279,17 @@ public class ServerClient {
 
             // create user resource
             ServerResourceHandle<User> userHandle = server.resourceManager().createResource(User.TYPE);
-            userHandle.useOrNot(user -> {
-                user.setUsername(username);
-                user.setPasswordLocal(password);
-            });
+            User created = userHandle.getOrNull();
+            created.setUsername(username);
+            created.setPasswordLocal(password);
+
+            // index the username, so a login finds
+            // the user before it has been saved
+            server.resourceManager().registry().reindex(created);
 
             // log and return success
-            LOGGER.info("{0} created user " + user.universalID() + "('" + username + "')");
-            return UserCreateResult.ofSuccess(user.universalID());
+            LOGGER.info("{0} created user " + created.universalID() + "('" + username + "')");
+            return UserCreateResult.ofSuccess(created.universalID());
         } catch (Exception e) {
             e.printStackTrace();
             return UserCreateResult.fail(e);
@@ -8,6 +8,7 @@ public class ResourceSpec {
     public static void loadSpec(ServerResourceManager manager) {
 
         // compile resource classes
+        manager.compileResourceClass(User.class);
         manager.compileResourceClass(ServerMessageChannel.class);
         manager.compileResourceClass(ServerChannelMessage.class);
 
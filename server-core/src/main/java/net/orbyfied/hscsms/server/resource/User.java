@@ -34,7 +34,7 @@ public class User extends ServerResource {
             user.username = dbItem.get("username", String.class);
             return ResourceLoadResult.ofSuccess();
         }
-    };
+    }.withIndex("username", true).withLookup("username", User::getUsername);
 
     // the SHA256 digest instance
     private static MessageDigest SHA256;
@@ -74,6 +74,10 @@ public class User extends ServerResource {
         return this;
     }
 
+    public String getUsername() {
+        return username;
+    }
+
     public User setPasswordLocal(String name) {
         // hash password
         this.passwordHash = SHA256.digest(name.getBytes(StandardCharsets.UTF_8));
@@ -0,0 +1,110 @@
+package net.orbyfied.hscsms.util;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+
+/**
+ * Values with a fixed layout of keys, backed by an
+ * array of values in the order of the keys. Reading
+ * the keys of the layout doesn't allocate, the map
+ * is only created when the values are used as one.
+ */
+public class PositionalValues extends Values {
+
+    // the keys in order
+    final String[] keys;
+    // the values in order of the keys
+    final Object[] args;
+
+    public PositionalValues(String[] keys, Object[] args) {
+        super((Object2ObjectOpenHashMap<Object, Object>) null);
+        if (keys.length != args.length)
+            throw new IllegalArgumentException("expected " + keys.length + " values, got " + args.length);
+        this.keys = keys;
+        this.args = args;
+    }
+
+    // get the position of the key, or -1
+    private int indexOf(Object key) {
+        String[] keys = this.keys;
+        // check identity first as keys
+        // are usually the same literals
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] == key)
+                return i;
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i].equals(key))
+                return i;
+        return -1;
+    }
+
+    public Object get(int index) {
+        return args[index];
+    }
+
+    @Override
+    Object2ObjectOpenHashMap<Object, Object> map() {
+        // create the map from the values
+        if (map == null) {
+            map = new Object2ObjectOpenHashMap<>(keys.length);
+            for (int i = 0; i < keys.length; i++)
+                map.put(keys[i], args[i]);
+        }
+
+        return map;
+    }
+
+    @Override
+    public int getSize() {
+        return map != null ? map.size() : keys.length;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> V getRaw(Object key) {
+        if (map == null) {
+            int i = indexOf(key);
+            return i != -1 ? (V) args[i] : null;
+        }
+
+        return super.getRaw(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> V get(String key) {
+        int i;
+        if (map == null && (i = indexOf(key)) != -1)
+            return (V) args[i];
+        return super.get(key);
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        if (map == null)
+            return indexOf(key) != -1;
+        return super.contains(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> V getOrDefaultRaw(Object key, V def) {
+        if (map == null) {
+            int i = indexOf(key);
+            return i != -1 ? (V) args[i] : def;
+        }
+
+        return super.getOrDefaultRaw(key, def);
+    }
+
+    @Override
+    public Values setRaw(Object key, Object val) {
+        int i;
+        if (map == null && val != this && (i = indexOf(key)) != -1) {
+            args[i] = val;
+            return this;
+        }
+
+        return super.setRaw(key, val);
+    }
+
+}
@@ -59,52 +59,57 @@ public class Values {
     Object2ObjectOpenHashMap<Object, Object> map;
 
     public int getSize() {
-        return map.size();
+        return map().size();
     }
 
     public Object2ObjectOpenHashMap<Object, Object> getMap() {
+        return map();
+    }
+
+    // get the internal map
+    Object2ObjectOpenHashMap<Object, Object> map() {
         return map;
     }
 
     public Values putAll(Values values) {
-        map.putAll(values.getMap());
+        map().putAll(values.getMap());
         return this;
     }
 
     @SuppressWarnings({"unchecked", "rawtypes"})
     public Values putAll(Map map) {
-        this.map.putAll(map);
+        this.map().putAll(map);
         return this;
     }
 
     public Set<Map.Entry<Object, Object>> entrySet() {
-        return map.entrySet();
+        return map().entrySet();
     }
 
     public List<Map.Entry<Object, Object>> entries() {
-        return new ArrayList<>(map.entrySet());
+        return new ArrayList<>(map().entrySet());
     }
 
     public Set<Object> keySet() {
-        return map.keySet();
+        return map().keySet();
     }
 
     public List<Object> keys() {
-        return new ArrayList<>(map.keySet());
+        return new ArrayList<>(map().keySet());
     }
 
     public Collection<Object> valueCollection() {
-        return map.values();
+        return map().values();
     }
 
     public List<Object> values() {
-        return new ArrayList<>(map.values());
+        return new ArrayList<>(map().values());
     }
 
     public Values setRaw(Object key, Object val) {
         if (val == this)
             throw new IllegalArgumentException("cannot put this recursively, attempted under key '" + key + "'");
-        this.map.put(key, val);
+        this.map().put(key, val);
         return this;
     }
 
@@ -165,7 +170,7 @@ public class Values {
 
     @SuppressWarnings("unchecked")
     public <V> V getRaw(Object key) {
-        return (V) map.get(key);
+        return (V) map().get(key);
     }
 
     public <V> V getRaw(Object key, Class<V> vClass) {
@@ -173,18 +178,18 @@ public class Values {
     }
 
     public boolean contains(Object key) {
-        return map.containsKey(key);
+        return map().containsKey(key);
     }
 
     public boolean containsValue(Object val) {
-        return map.containsValue(val);
+        return map().containsValue(val);
     }
 
     @SuppressWarnings("unchecked")
     public <V> V getOrDefaultRaw(Object key, V def) {
-        if (!map.containsKey(key))
+        if (!map().containsKey(key))
             return def;
-        return (V) map.get(key);
+        return (V) map().get(key);
     }
 
     @SuppressWarnings("unchecked")
@@ -268,19 +273,19 @@ public class Values {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Values values = (Values) o;
-        return Objects.equals(map, values.map);
+        return Objects.equals(map(), values.map());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(map);
+        return Objects.hash(map());
     }
 
     @Override
     public String toString() {
         StringBuilder b = new StringBuilder("{ ");
         int i = 0;
-        for (Map.Entry<Object, Object> entry : map.entrySet()) {
+        for (Map.Entry<Object, Object> entry : map().entrySet()) {
             // handle trailing comma
             if (i != 0)
                 b.append(", ");
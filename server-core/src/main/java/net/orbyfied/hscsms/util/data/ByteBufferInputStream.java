@@ -0,0 +1,53 @@
+package net.orbyfied.hscsms.util.data;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Input stream reading the remaining
+ * bytes of a byte buffer.
+ */
+public class ByteBufferInputStream extends InputStream {
+
+    // the buffer
+    final ByteBuffer buf;
+
+    public ByteBufferInputStream(ByteBuffer buf) {
+        this.buf = buf;
+    }
+
+    public ByteBuffer buffer() {
+        return buf;
+    }
+
+    @Override
+    public int read() {
+        if (!buf.hasRemaining())
+            return -1;
+        return buf.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0)
+            return 0;
+        if (!buf.hasRemaining())
+            return -1;
+        int n = Math.min(len, buf.remaining());
+        buf.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) {
+        int k = (int) Math.max(0, Math.min(n, buf.remaining()));
+        buf.position(buf.position() + k);
+        return k;
+    }
+
+    @Override
+    public int available() {
+        return buf.remaining();
+    }
+
+}
@@ -0,0 +1,69 @@
+package net.orbyfied.hscsms.util.data;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Output stream writing into a byte buffer
+ * acquired from a pool, growing it when full.
+ */
+public class ByteBufferOutputStream extends OutputStream {
+
+    // the buffer pool
+    final ByteBufferPool pool;
+    // the current buffer
+    ByteBuffer buf;
+
+    public ByteBufferOutputStream(ByteBufferPool pool) {
+        this.pool = pool;
+        this.buf  = pool.acquire();
+    }
+
+    /**
+     * Get the buffer written to, its position
+     * is the amount of bytes written.
+     * @return The buffer.
+     */
+    public ByteBuffer buffer() {
+        return buf;
+    }
+
+    /**
+     * Returns the buffer to the pool,
+     * the stream can not be used after.
+     */
+    public void release() {
+        pool.release(buf);
+        buf = null;
+    }
+
+    /**
+     * Makes sure at least n more bytes
+     * fit in the buffer, growing it if needed.
+     * @param n The amount of bytes.
+     */
+    public void ensureRemaining(int n) {
+        if (buf.remaining() >= n)
+            return;
+
+        // move into larger buffer
+        ByteBuffer grown = pool.acquire(Math.max(buf.capacity() * 2, buf.position() + n));
+        buf.flip();
+        grown.put(buf);
+        pool.release(buf);
+        buf = grown;
+    }
+
+    @Override
+    public void write(int b) {
+        ensureRemaining(1);
+        buf.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureRemaining(len);
+        buf.put(b, off, len);
+    }
+
+}
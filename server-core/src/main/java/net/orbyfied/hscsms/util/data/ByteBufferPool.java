@@ -0,0 +1,90 @@
+package net.orbyfied.hscsms.util.data;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded pool of reusable, equally sized byte
+ * buffers. Requests larger than the buffer size are
+ * served with freshly allocated buffers which are
+ * not taken back into the pool.
+ */
+public class ByteBufferPool {
+
+    /**
+     * Shared pool of heap buffers.
+     */
+    public static final ByteBufferPool HEAP   = new ByteBufferPool(false, 16 * 1024, 512);
+
+    /**
+     * Shared pool of direct buffers.
+     */
+    public static final ByteBufferPool DIRECT = new ByteBufferPool(true, 16 * 1024, 512);
+
+    //////////////////////////////////////
+
+    // if the buffers are direct
+    final boolean direct;
+    // the size of the pooled buffers
+    final int bufferSize;
+
+    // the pooled buffers
+    final ArrayBlockingQueue<ByteBuffer> buffers;
+
+    public ByteBufferPool(boolean direct, int bufferSize, int maxPooled) {
+        this.direct     = direct;
+        this.bufferSize = bufferSize;
+        this.buffers    = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    public int pooled() {
+        return buffers.size();
+    }
+
+    /**
+     * Get a cleared buffer of the pool size.
+     * @return The buffer.
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buf = buffers.poll();
+        if (buf == null)
+            return allocate(bufferSize);
+        return buf;
+    }
+
+    /**
+     * Get a cleared buffer with at least
+     * the specified capacity.
+     * @param capacity The minimum capacity.
+     * @return The buffer.
+     */
+    public ByteBuffer acquire(int capacity) {
+        if (capacity > bufferSize)
+            return allocate(capacity);
+        return acquire();
+    }
+
+    /**
+     * Returns a buffer to the pool, if it
+     * was allocated by it and there is space.
+     * @param buf The buffer.
+     */
+    public void release(ByteBuffer buf) {
+        if (buf == null || buf.capacity() != bufferSize || buf.isDirect() != direct)
+            return;
+        buffers.offer(buf.clear());
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+}
@@ -0,0 +1,121 @@
+package net.orbyfied.hscsms.util.data;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram of durations in nanoseconds.
+ * Every power of two is split into 8 buckets, so
+ * percentiles are accurate to about 12.5 percent.
+ */
+public class LatencyHistogram {
+
+    // the sub buckets per power of two, power of two
+    static final int SUB_BITS = 3;
+    static final int SUB      = 1 << SUB_BITS;
+
+    // the amount of buckets, enough for all positive longs
+    static final int BUCKETS = (64 - SUB_BITS) << SUB_BITS;
+
+    // get the bucket of the value
+    static int bucketOf(long value) {
+        if (value < SUB)
+            return (int) Math.max(0, value);
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB - 1);
+        return ((exp - SUB_BITS + 1) << SUB_BITS) | sub;
+    }
+
+    // get the highest value in the bucket
+    static long highestOf(int bucket) {
+        if (bucket < SUB)
+            return bucket;
+        int shift = (bucket >>> SUB_BITS) - 1;
+        long base = (long) (SUB | (bucket & (SUB - 1))) << shift;
+        return base + (1L << shift) - 1;
+    }
+
+    /////////////////////////////////////
+
+    // the counts by bucket
+    final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    // the totals
+    final LongAdder count = new LongAdder();
+    final LongAdder sum   = new LongAdder();
+    final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a duration.
+     * @param nanos The duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketOf(nanos));
+        count.increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotal() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long c = count.sum();
+        return c != 0 ? (double) sum.sum() / c : 0;
+    }
+
+    /**
+     * Get the duration which the given share
+     * of the recorded durations don't exceed.
+     * @param p The share, from 0 to 1.
+     * @return The duration in nanoseconds, the
+     *         highest of its bucket.
+     */
+    public long getPercentile(double p) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            total += counts.get(i);
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if ((seen += counts.get(i)) >= rank)
+                return Math.min(highestOf(i), max.get());
+        }
+
+        return max.get();
+    }
+
+    /**
+     * Clears all recorded durations.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            counts.set(i, 0);
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "{ count : " + getCount() +
+                ", mean : " + (long) getMean() +
+                ", p50 : " + getPercentile(0.5) +
+                ", p99 : " + getPercentile(0.99) +
+                ", max : " + getMax() + " }";
+    }
+
+}
@@ -0,0 +1,293 @@
+package net.orbyfied.hscsms.util.data;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+
+/**
+ * Open addressing hash map keyed by two longs, like
+ * the most and least significant bits of a {@link UUID},
+ * so lookups don't need a key object. Reads are lock free,
+ * writes are serialized on the map. A slot keeps its key
+ * until the table is rebuilt, so a reader which sees a
+ * value in a slot always sees the key it was put with.
+ * @param <V> The value type.
+ */
+public class LongPair2ObjectMap<V> {
+
+    // marks a removed value, the slot
+    // can only be reused by the same key
+    static final Object REMOVED = new Object();
+
+    // access to the value slots
+    static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    // the minimum capacity, power of two
+    static final int MIN_CAPACITY = 16;
+
+    // a table of slots, keys are stored in
+    // pairs at twice the index of the value
+    static final class Table {
+        final long[] keys;
+        final Object[] values;
+        final int mask;
+
+        Table(int capacity) {
+            this.keys   = new long[capacity * 2];
+            this.values = new Object[capacity];
+            this.mask   = capacity - 1;
+        }
+    }
+
+    // the current table
+    volatile Table table;
+    // the amount of values
+    volatile int size;
+    // the amount of used slots, including removed ones
+    int used;
+
+    public LongPair2ObjectMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongPair2ObjectMap(int expected) {
+        this.table = new Table(capacityFor(expected));
+    }
+
+    // the power of two capacity
+    // keeping the load under half
+    static int capacityFor(int count) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < count * 2)
+            capacity <<= 1;
+        return capacity;
+    }
+
+    // mixes the key into a hash
+    static int hash(long msb, long lsb) {
+        long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the value for the key.
+     * @param msb The most significant bits.
+     * @param lsb The least significant bits.
+     * @return The value or null if absent.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long msb, long lsb) {
+        Table t = table;
+        long[] keys = t.keys;
+        int i = hash(msb, lsb) & t.mask;
+        Object value;
+        while ((value = VALUES.getAcquire(t.values, i)) != null) {
+            if (keys[i << 1] == msb && keys[(i << 1) + 1] == lsb)
+                return value == REMOVED ? null : (V) value;
+            i = (i + 1) & t.mask;
+        }
+
+        return null;
+    }
+
+    public V get(UUID key) {
+        return get(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    }
+
+    public boolean containsKey(long msb, long lsb) {
+        return get(msb, lsb) != null;
+    }
+
+    public boolean containsKey(UUID key) {
+        return get(key) != null;
+    }
+
+    // find the slot of the key in the table,
+    // or the free slot to put it in
+    private static int slot(Table t, long msb, long lsb) {
+        int i = hash(msb, lsb) & t.mask;
+        while (t.values[i] != null) {
+            if (t.keys[i << 1] == msb && t.keys[(i << 1) + 1] == lsb)
+                return i;
+            i = (i + 1) & t.mask;
+        }
+
+        return i;
+    }
+
+    // put the value in the slot, writing
+    // the key before publishing the value
+    private static void set(Table t, int i, long msb, long lsb, Object value) {
+        t.keys[i << 1]       = msb;
+        t.keys[(i << 1) + 1] = lsb;
+        VALUES.setRelease(t.values, i, value);
+    }
+
+    /**
+     * Puts the value for the key.
+     * @param msb The most significant bits.
+     * @param lsb The least significant bits.
+     * @param value The value, not null.
+     * @return The replaced value or null.
+     */
+    public synchronized V put(long msb, long lsb, V value) {
+        return put(msb, lsb, value, false);
+    }
+
+    public V put(UUID key, V value) {
+        return put(key.getMostSignificantBits(), key.getLeastSignificantBits(), value);
+    }
+
+    /**
+     * Puts the value for the key if absent.
+     * @param msb The most significant bits.
+     * @param lsb The least significant bits.
+     * @param value The value, not null.
+     * @return The present value or null if
+     *         the given value was put.
+     */
+    public synchronized V putIfAbsent(long msb, long lsb, V value) {
+        return put(msb, lsb, value, true);
+    }
+
+    public V putIfAbsent(UUID key, V value) {
+        return putIfAbsent(key.getMostSignificantBits(), key.getLeastSignificantBits(), value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V put(long msb, long lsb, V value, boolean onlyIfAbsent) {
+        if (value == null)
+            throw new NullPointerException("value");
+
+        Table t = table;
+        int i = slot(t, msb, lsb);
+        Object old = t.values[i];
+        if (old != null && old != REMOVED) {
+            if (!onlyIfAbsent)
+                VALUES.setRelease(t.values, i, value);
+            return (V) old;
+        }
+
+        // put in free or removed slot
+        set(t, i, msb, lsb, value);
+        size++;
+        if (old == null && ++used > t.values.length >> 1)
+            rebuild();
+        return null;
+    }
+
+    /**
+     * Removes the value for the key.
+     * @param msb The most significant bits.
+     * @param lsb The least significant bits.
+     * @return The removed value or null.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V remove(long msb, long lsb) {
+        Table t = table;
+        int i = slot(t, msb, lsb);
+        Object old = t.values[i];
+        if (old == null || old == REMOVED)
+            return null;
+        VALUES.setRelease(t.values, i, REMOVED);
+        size--;
+        return (V) old;
+    }
+
+    public V remove(UUID key) {
+        return remove(key.getMostSignificantBits(), key.getLeastSignificantBits());
+    }
+
+    /**
+     * Removes the value for the key
+     * if it is the given instance.
+     * @param msb The most significant bits.
+     * @param lsb The least significant bits.
+     * @param value The value.
+     * @return If it was removed.
+     */
+    public synchronized boolean remove(long msb, long lsb, V value) {
+        Table t = table;
+        int i = slot(t, msb, lsb);
+        if (t.values[i] != value || value == null)
+            return false;
+        VALUES.setRelease(t.values, i, REMOVED);
+        size--;
+        return true;
+    }
+
+    public boolean remove(UUID key, V value) {
+        return remove(key.getMostSignificantBits(), key.getLeastSignificantBits(), value);
+    }
+
+    public synchronized void clear() {
+        table = new Table(MIN_CAPACITY);
+        size  = 0;
+        used  = 0;
+    }
+
+    /**
+     * Calls the consumer with the key and value
+     * of all entries present in the current table.
+     * @param consumer The consumer.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<UUID, V> consumer) {
+        Table t = table;
+        for (int i = 0; i < t.values.length; i++) {
+            Object value = VALUES.getAcquire(t.values, i);
+            if (value != null && value != REMOVED)
+                consumer.accept(new UUID(t.keys[i << 1], t.keys[(i << 1) + 1]), (V) value);
+        }
+    }
+
+    /**
+     * Get a snapshot of the values.
+     * @return The values.
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        Table t = table;
+        List<V> list = new ArrayList<>(size);
+        for (int i = 0; i < t.values.length; i++) {
+            Object value = VALUES.getAcquire(t.values, i);
+            if (value != null && value != REMOVED)
+                list.add((V) value);
+        }
+
+        return list;
+    }
+
+    // rebuilds the table without removed
+    // slots, growing it if needed
+    private void rebuild() {
+        Table t = table;
+        Table n = new Table(capacityFor(size + (size >> 1) + 1));
+        for (int i = 0; i < t.values.length; i++) {
+            Object value = t.values[i];
+            if (value == null || value == REMOVED)
+                continue;
+            long msb = t.keys[i << 1];
+            long lsb = t.keys[(i << 1) + 1];
+            set(n, slot(n, msb, lsb), msb, lsb, value);
+        }
+
+        used  = size;
+        table = n;
+    }
+
+}
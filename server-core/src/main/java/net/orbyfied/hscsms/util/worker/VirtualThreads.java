@@ -0,0 +1,99 @@
+package net.orbyfied.hscsms.util.worker;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads (Java 21+) while
+ * still compiling against Java 17. Everything
+ * is resolved reflectively once, and falls back
+ * to platform threads when unsupported.
+ */
+public class VirtualThreads {
+
+    // Thread.ofVirtual()
+    private static final Method OF_VIRTUAL;
+    // Thread.Builder#name(String, long)
+    private static final Method BUILDER_NAME;
+    // Thread.Builder#factory()
+    private static final Method BUILDER_FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        Method name      = null;
+        Method factory   = null;
+
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name      = builderClass.getMethod("name", String.class, long.class);
+            factory   = builderClass.getMethod("factory");
+
+            // make sure it is not a preview feature
+            ofVirtual.invoke(null);
+        } catch (Throwable t) {
+            ofVirtual = null;
+        }
+
+        OF_VIRTUAL      = ofVirtual;
+        BUILDER_NAME    = name;
+        BUILDER_FACTORY = factory;
+    }
+
+    /**
+     * Check if virtual threads are
+     * supported by the running JVM.
+     * @return True if supported.
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Creates a thread factory creating virtual
+     * threads named with the prefix followed by a
+     * counter, or platform threads if unsupported.
+     * @param prefix The thread name prefix.
+     * @return The thread factory.
+     */
+    public static ThreadFactory factory(String prefix) {
+        if (!isSupported())
+            return platformFactory(prefix);
+
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = BUILDER_NAME.invoke(builder, prefix, 0L);
+            return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+        } catch (Exception e) {
+            return platformFactory(prefix);
+        }
+    }
+
+    /**
+     * Creates a new unstarted thread.
+     * @param virtual If it should be a virtual thread.
+     * @param name The thread name.
+     * @param runnable The target.
+     * @return The thread.
+     */
+    public static Thread newThread(boolean virtual, String name, Runnable runnable) {
+        if (!virtual || !isSupported())
+            return new Thread(runnable, name);
+
+        Thread thread = factory(name).newThread(runnable);
+        thread.setName(name);
+        return thread;
+    }
+
+    private static ThreadFactory platformFactory(final String prefix) {
+        return new ThreadFactory() {
+            int id = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                return new Thread(r, prefix + (id++));
+            }
+        };
+    }
+
+}
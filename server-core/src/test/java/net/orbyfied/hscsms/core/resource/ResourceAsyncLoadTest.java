@@ -0,0 +1,184 @@
+package net.orbyfied.hscsms.core.resource;
+
+import net.orbyfied.hscsms.core.resource.impl.ResourceGCService;
+import net.orbyfied.hscsms.core.resource.impl.ResourceWriteBehindService;
+import net.orbyfied.hscsms.db.DatabaseQuery;
+import net.orbyfied.hscsms.db.DatabaseType;
+import net.orbyfied.hscsms.db.QueryPool;
+import net.orbyfied.hscsms.db.impl.InMemoryDatabase;
+import net.orbyfied.hscsms.server.Server;
+import net.orbyfied.hscsms.server.resource.User;
+import net.orbyfied.hscsms.util.Values;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the asynchronous loads and saves use the
+ * asynchronous queries, backed by an in-memory database
+ * whose queries are completed manually, like the
+ * callbacks of a non-blocking driver.
+ */
+public class ResourceAsyncLoadTest {
+
+    // the queries made asynchronous
+    static final String[] QUERIES = {
+            "find_resource_uuid",
+            "find_resources_uuids",
+            "find_resource_local",
+            "find_resource_filter",
+            "push_resources_bulk",
+            "ref_resource_uuid"
+    };
+
+    // the query which completes immediately, like
+    // the reference to a document of the driver
+    static final String REF_QUERY = "ref_resource_uuid";
+
+    Server server;
+    ServerResourceManager manager;
+
+    // if queries are completed by the test
+    boolean defer;
+    // the started queries, completed by the test
+    final List<Runnable> pending = new ArrayList<>();
+
+    // the stored user
+    UUID uuid;
+    UUID localId;
+
+    @BeforeEach
+    void setup() {
+        server = new Server();
+        server.configuration.put("database", new Values().setRaw("brand", "memory"));
+        server.setup();
+
+        manager = server.resourceManager();
+        manager.registerType(User.TYPE);
+        // load cold, not restoring unloaded resources
+        manager.registry().setSoftCache(false);
+
+        // replace the queries with asynchronous ones, before
+        // they are prepared by the manager, which complete
+        // when the test runs them once deferred
+        QueryPool pool = manager.getGlobalQueryPool();
+        for (String op : QUERIES) {
+            DatabaseQuery<Object, InMemoryDatabase> query = pool.getQuery(op, DatabaseType.IN_MEMORY);
+            pool.putQuery(DatabaseQuery.<Object, InMemoryDatabase>ofAsync(op, DatabaseType.IN_MEMORY, (q, database, values) -> {
+                if (!defer || op.equals(REF_QUERY))
+                    return CompletableFuture.completedFuture(query.doSync(database, values));
+                CompletableFuture<Object> future = new CompletableFuture<>();
+                pending.add(() -> future.complete(query.doSync(database, values)));
+                return future;
+            }));
+        }
+
+        // store a user and unload it
+        User user = manager.createResourceUnwrapped(User.TYPE);
+        user.setUsername("bob").setPasswordLocal("password");
+        manager.saveResource(user);
+        manager.unloadResource(user);
+        uuid    = user.universalID();
+        localId = user.localID();
+        defer   = true;
+    }
+
+    @AfterEach
+    void teardown() {
+        manager.withoutService(ResourceGCService.class);
+        manager.withoutService(ResourceWriteBehindService.class);
+    }
+
+    // completes the started queries on this thread
+    void completeQueries() {
+        List<Runnable> queries = new ArrayList<>(pending);
+        pending.clear();
+        queries.forEach(Runnable::run);
+    }
+
+    @Test
+    void concurrentLoadsShareOneQuery() {
+        CompletableFuture<ServerResourceHandle<User>> a = manager.loadResourceAsync(uuid);
+        CompletableFuture<ServerResourceHandle<User>> b = manager.loadResourceAsync(uuid);
+        CompletableFuture<User> c = manager.<User>createHandleUniversal(uuid).getOrLoadAsync();
+        assertEquals(1, pending.size());
+        assertFalse(a.isDone());
+
+        // completed on the callback, without an executor
+        completeQueries();
+        assertTrue(a.isDone() && b.isDone() && c.isDone());
+        User user = a.join().getOrNull();
+        assertNotNull(user);
+        assertSame(user, b.join().getOrNull());
+        assertSame(user, c.join());
+        assertSame(user, manager.getLoadedUniversal(uuid));
+    }
+
+    @Test
+    void absentResourceCompletesWithNull() {
+        CompletableFuture<User> future = manager.loadResourceUnwrappedAsync(UUID.randomUUID());
+        completeQueries();
+        assertNull(future.join());
+    }
+
+    @Test
+    void loadLocalUsesAsyncQuery() {
+        CompletableFuture<ServerResourceHandle<User>> a = manager.loadResourceLocalAsync(User.TYPE, localId);
+        CompletableFuture<ServerResourceHandle<User>> b = manager.loadResourceLocalAsync(User.TYPE, localId);
+        assertEquals(1, pending.size());
+
+        completeQueries();
+        assertTrue(a.isDone());
+        assertEquals(uuid, a.join().getOrNull().universalID());
+        assertSame(a.join().getOrNull(), b.join().getOrNull());
+    }
+
+    @Test
+    void loadManyUsesOneAsyncQuery() {
+        CompletableFuture<List<ServerResourceHandle<User>>> future =
+                manager.loadResourcesAsync(List.of(uuid, UUID.randomUUID()));
+        assertEquals(1, pending.size());
+
+        completeQueries();
+        assertTrue(future.isDone());
+        assertEquals(1, future.join().size());
+        assertEquals(uuid, future.join().get(0).universalID());
+    }
+
+    @Test
+    void loadFilteredUsesAsyncQuery() {
+        CompletableFuture<User> future = manager.loadDatabaseResourceFilteredAsync(User.TYPE,
+                new Values().setRaw("username", "bob"));
+        assertEquals(1, pending.size());
+
+        completeQueries();
+        assertTrue(future.isDone());
+        assertEquals(uuid, future.join().universalID());
+    }
+
+    @Test
+    void saveUsesAsyncQuery() {
+        CompletableFuture<User> load = manager.loadResourceUnwrappedAsync(uuid);
+        completeQueries();
+        User user = load.join();
+        user.setUsername("alice");
+        CompletableFuture<Void> future = manager.saveResourceAsync(user);
+        assertEquals(1, pending.size());
+        assertFalse(future.isDone());
+
+        completeQueries();
+        assertTrue(future.isDone());
+        manager.unloadResource(user);
+        CompletableFuture<User> loaded = manager.loadResourceUnwrappedAsync(uuid);
+        completeQueries();
+        assertEquals("alice", loaded.join().getUsername());
+    }
+
+}
@@ -0,0 +1,136 @@
+package net.orbyfied.hscsms.core.resource;
+
+import net.orbyfied.hscsms.core.resource.impl.ResourceGCService;
+import net.orbyfied.hscsms.core.resource.impl.ResourceWriteBehindService;
+import net.orbyfied.hscsms.db.DatabaseQuery;
+import net.orbyfied.hscsms.db.DatabaseType;
+import net.orbyfied.hscsms.db.QueryPool;
+import net.orbyfied.hscsms.db.impl.InMemoryDatabase;
+import net.orbyfied.hscsms.server.Server;
+import net.orbyfied.hscsms.server.resource.User;
+import net.orbyfied.hscsms.util.Values;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that filtered lookups by username are served
+ * by the lookup index and the negative cache, backed
+ * by an in-memory database.
+ */
+public class ResourceLookupsTest {
+
+    Server server;
+    ServerResourceManager manager;
+
+    // the filtered find queries executed
+    final AtomicInteger finds = new AtomicInteger();
+
+    @BeforeEach
+    void setup() {
+        server = new Server();
+        server.configuration.put("database", new Values().setRaw("brand", "memory"));
+        server.setup();
+
+        manager = server.resourceManager();
+        manager.registerType(User.TYPE);
+        // load cold, not restoring unloaded resources
+        manager.registry().setSoftCache(false);
+
+        // count the filtered find queries, before
+        // they are prepared by the manager
+        QueryPool pool = manager.getGlobalQueryPool();
+        DatabaseQuery<Object, InMemoryDatabase> find = pool.getQuery("find_resource_filter", DatabaseType.IN_MEMORY);
+        pool.putQuery(new DatabaseQuery<Object, InMemoryDatabase>("find_resource_filter", DatabaseType.IN_MEMORY, (q, database, values) -> {
+            finds.incrementAndGet();
+            return find.doSync(database, values);
+        }));
+    }
+
+    @AfterEach
+    void teardown() {
+        manager.withoutService(ResourceGCService.class);
+        manager.withoutService(ResourceWriteBehindService.class);
+    }
+
+    // finds the user by username
+    User find(String username) {
+        return manager.loadDatabaseResourceFiltered(User.TYPE, new Values().setRaw("username", username));
+    }
+
+    // creates a user with the name and indexes it
+    User createUser(String name) {
+        User user = manager.createResourceUnwrapped(User.TYPE);
+        user.setUsername(name).setPasswordLocal("password");
+        manager.registry().reindex(user);
+        return user;
+    }
+
+    @Test
+    void loadedUserServedFromIndex() {
+        User user = createUser("alice");
+        assertSame(user, find("alice"));
+        assertEquals(0, finds.get());
+    }
+
+    @Test
+    void absentUsernameCached() {
+        assertNull(find("nobody"));
+        assertNull(find("nobody"));
+        assertEquals(1, finds.get());
+    }
+
+    @Test
+    void absentUsernameNotCachedWhenDisabled() {
+        manager.registry().lookups().configure(new Values().setRaw("negative-ttl", 0));
+        assertNull(find("nobody"));
+        assertNull(find("nobody"));
+        assertEquals(2, finds.get());
+    }
+
+    @Test
+    void createdUserClearsAbsentUsername() {
+        assertNull(find("carol"));
+        assertEquals(1, finds.get());
+
+        // created after the failed lookup
+        User user = createUser("carol");
+        assertSame(user, find("carol"));
+        assertEquals(1, finds.get());
+    }
+
+    @Test
+    void renamedUserReindexed() {
+        User user = createUser("alice");
+        manager.saveResource(user);
+        user.setUsername("bob");
+        manager.saveResource(user);
+
+        assertSame(user, find("bob"));
+        assertEquals(0, finds.get());
+        assertNull(find("alice"));
+        assertEquals(1, finds.get());
+    }
+
+    @Test
+    void unloadedUserLoadedFromDatabase() {
+        User user = createUser("alice");
+        manager.saveResource(user);
+        manager.unloadResource(user);
+
+        User loaded = find("alice");
+        assertNotNull(loaded);
+        assertNotSame(user, loaded);
+        assertEquals(user.universalID(), loaded.universalID());
+        assertEquals(1, finds.get());
+
+        // indexed when loaded
+        assertSame(loaded, find("alice"));
+        assertEquals(1, finds.get());
+    }
+
+}
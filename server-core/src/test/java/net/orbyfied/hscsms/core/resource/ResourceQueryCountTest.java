@@ -0,0 +1,119 @@
+package net.orbyfied.hscsms.core.resource;
+
+import net.orbyfied.hscsms.core.resource.impl.ResourceGCService;
+import net.orbyfied.hscsms.core.resource.impl.ResourceWriteBehindService;
+import net.orbyfied.hscsms.db.DatabaseQuery;
+import net.orbyfied.hscsms.db.DatabaseType;
+import net.orbyfied.hscsms.db.QueryPool;
+import net.orbyfied.hscsms.db.impl.InMemoryDatabase;
+import net.orbyfied.hscsms.server.Server;
+import net.orbyfied.hscsms.server.resource.User;
+import net.orbyfied.hscsms.util.Values;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Counts the database queries finding resources
+ * on cold loads, backed by an in-memory database.
+ */
+public class ResourceQueryCountTest {
+
+    // the queries counted
+    static final String[] FIND_QUERIES = {
+            "find_resource_uuid",
+            "find_resources_uuids",
+            "find_resource_local",
+            "find_resource_filter"
+    };
+
+    Server server;
+    ServerResourceManager manager;
+
+    // the find queries executed
+    final AtomicInteger finds = new AtomicInteger();
+
+    // the stored user
+    UUID uuid;
+    UUID localId;
+
+    @BeforeEach
+    void setup() {
+        server = new Server();
+        server.configuration.put("database", new Values().setRaw("brand", "memory"));
+        server.setup();
+
+        manager = server.resourceManager();
+        manager.registerType(User.TYPE);
+        // load cold, not restoring unloaded resources
+        manager.registry().setSoftCache(false);
+
+        // count the find queries, before
+        // they are prepared by the manager
+        QueryPool pool = manager.getGlobalQueryPool();
+        for (String op : FIND_QUERIES) {
+            DatabaseQuery<Object, InMemoryDatabase> query = pool.getQuery(op, DatabaseType.IN_MEMORY);
+            pool.putQuery(new DatabaseQuery<Object, InMemoryDatabase>(op, DatabaseType.IN_MEMORY, (q, database, values) -> {
+                finds.incrementAndGet();
+                return query.doSync(database, values);
+            }));
+        }
+
+        // store a user and unload it
+        User user = manager.createResourceUnwrapped(User.TYPE);
+        user.setUsername("bob").setPasswordLocal("password");
+        manager.saveResource(user);
+        manager.unloadResource(user);
+        uuid    = user.universalID();
+        localId = user.localID();
+        finds.set(0);
+    }
+
+    @AfterEach
+    void teardown() {
+        manager.withoutService(ResourceGCService.class);
+        manager.withoutService(ResourceWriteBehindService.class);
+    }
+
+    @Test
+    void loadResourceQueriesOnce() {
+        ServerResourceHandle<User> handle = manager.loadResource(uuid);
+        assertNotNull(handle.getOrNull());
+        assertEquals(1, finds.get());
+        handle.release();
+    }
+
+    @Test
+    void loadResourceLocalQueriesOnce() {
+        ServerResourceHandle<User> handle = manager.loadResourceLocal(User.TYPE, localId);
+        assertNotNull(handle.getOrNull());
+        assertEquals(uuid, handle.getOrNull().universalID());
+        assertEquals(1, finds.get());
+        handle.release();
+    }
+
+    @Test
+    void loadDatabaseResourceFilteredQueriesOnce() {
+        User user = manager.loadDatabaseResourceFiltered(User.TYPE, new Values().setRaw("username", "bob"));
+        assertNotNull(user);
+        assertEquals(uuid, user.universalID());
+        assertEquals(1, finds.get());
+    }
+
+    @Test
+    void loadedResourcesNotQueried() {
+        User user = manager.loadDatabaseResourceFiltered(User.TYPE, new Values().setRaw("username", "bob"));
+        assertNotNull(user);
+        finds.set(0);
+
+        assertSame(user, manager.loadResourceUnwrapped(uuid));
+        assertSame(user, manager.loadDatabaseResourceFiltered(User.TYPE, new Values().setRaw("username", "bob")));
+        assertEquals(0, finds.get());
+    }
+
+}
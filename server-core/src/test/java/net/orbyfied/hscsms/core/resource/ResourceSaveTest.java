@@ -0,0 +1,128 @@
+package net.orbyfied.hscsms.core.resource;
+
+import net.orbyfied.hscsms.core.resource.impl.ResourceGCService;
+import net.orbyfied.hscsms.core.resource.impl.ResourceWriteBehindService;
+import net.orbyfied.hscsms.db.DatabaseQuery;
+import net.orbyfied.hscsms.db.DatabaseType;
+import net.orbyfied.hscsms.db.QueryPool;
+import net.orbyfied.hscsms.db.impl.InMemoryDatabase;
+import net.orbyfied.hscsms.server.Server;
+import net.orbyfied.hscsms.server.resource.User;
+import net.orbyfied.hscsms.util.Values;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that saves only write changed resources,
+ * backed by an in-memory database.
+ */
+public class ResourceSaveTest {
+
+    Server server;
+    ServerResourceManager manager;
+
+    // the items written by bulk saves
+    final AtomicInteger written = new AtomicInteger();
+    // the find queries executed
+    final AtomicInteger finds = new AtomicInteger();
+
+    @BeforeEach
+    void setup() {
+        server = new Server();
+        server.configuration.put("database", new Values().setRaw("brand", "memory"));
+        server.setup();
+
+        manager = server.resourceManager();
+        manager.registerType(User.TYPE);
+        // load cold, not restoring unloaded resources
+        manager.registry().setSoftCache(false);
+
+        // count the written items and find queries
+        QueryPool pool = manager.getGlobalQueryPool();
+        DatabaseQuery<Integer, InMemoryDatabase> push = pool.getQuery("push_resources_bulk", DatabaseType.IN_MEMORY);
+        pool.putQuery(new DatabaseQuery<Integer, InMemoryDatabase>("push_resources_bulk", DatabaseType.IN_MEMORY, (q, database, values) -> {
+            int n = push.doSync(database, values);
+            written.addAndGet(n);
+            return n;
+        }));
+        DatabaseQuery<Object, InMemoryDatabase> find = pool.getQuery("find_resource_uuid", DatabaseType.IN_MEMORY);
+        pool.putQuery(new DatabaseQuery<Object, InMemoryDatabase>("find_resource_uuid", DatabaseType.IN_MEMORY, (q, database, values) -> {
+            finds.incrementAndGet();
+            return find.doSync(database, values);
+        }));
+    }
+
+    @AfterEach
+    void teardown() {
+        manager.withoutService(ResourceGCService.class);
+        manager.withoutService(ResourceWriteBehindService.class);
+    }
+
+    // creates a user with the name
+    User createUser(String name) {
+        User user = manager.createResourceUnwrapped(User.TYPE);
+        user.setUsername(name).setPasswordLocal("password");
+        return user;
+    }
+
+    // unloads and loads the user from the database
+    User reload(User user) {
+        manager.unloadResource(user);
+        User loaded = manager.loadResourceUnwrapped(user.universalID());
+        assertNotSame(user, loaded);
+        return loaded;
+    }
+
+    @Test
+    void bulkSaveSkipsUnchangedResources() {
+        List<User> users = List.of(createUser("a"), createUser("b"), createUser("c"));
+        manager.saveResources(users);
+        assertEquals(3, written.getAndSet(0));
+
+        // nothing changed
+        manager.saveResources(users);
+        assertEquals(0, written.getAndSet(0));
+
+        // one changed
+        users.get(1).setUsername("d");
+        manager.saveResources(users);
+        assertEquals(1, written.getAndSet(0));
+        assertEquals("d", reload(users.get(1)).getUsername());
+    }
+
+    @Test
+    void bulkSaveOfLoadedResourceSkipsUnchanged() {
+        User user = createUser("a");
+        manager.saveResource(user);
+        User loaded = reload(user);
+
+        manager.saveResources(List.of(loaded));
+        assertEquals(0, written.getAndSet(0));
+
+        loaded.setUsername("b");
+        manager.saveResources(List.of(loaded));
+        assertEquals(1, written.getAndSet(0));
+        assertEquals("b", reload(loaded).getUsername());
+    }
+
+    @Test
+    void saveReusesStoredItem() {
+        User user = createUser("a");
+        manager.saveResource(user);
+        finds.set(0);
+
+        // saved again without finding the document
+        user.setUsername("b");
+        manager.saveResource(user);
+        assertEquals(0, finds.get());
+
+        assertEquals("b", reload(user).getUsername());
+    }
+
+}
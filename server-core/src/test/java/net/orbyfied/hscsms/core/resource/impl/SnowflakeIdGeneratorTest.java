@@ -0,0 +1,115 @@
+package net.orbyfied.hscsms.core.resource.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the generated IDs are unique, increasing
+ * and carry the node ID, also when many IDs are generated
+ * within one millisecond and concurrently.
+ */
+public class SnowflakeIdGeneratorTest {
+
+    // get the node ID of an ID
+    static int node(long id) {
+        return (int) ((id >>> SnowflakeIdGenerator.SEQUENCE_BITS) & SnowflakeIdGenerator.MAX_NODE);
+    }
+
+    @Test
+    void nodeOutOfRangeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE + 1));
+    }
+
+    @Test
+    void idsCarryNodeAndTime() {
+        long before = System.currentTimeMillis();
+        long id = new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE).nextId();
+        long after = System.currentTimeMillis();
+
+        assertEquals(SnowflakeIdGenerator.MAX_NODE, node(id));
+        long time = SnowflakeIdGenerator.getTime(id);
+        assertTrue(time >= before && time <= after, time + " not in " + before + "-" + after);
+    }
+
+    @Test
+    void nodesDontCollide() {
+        SnowflakeIdGenerator a = new SnowflakeIdGenerator(1);
+        SnowflakeIdGenerator b = new SnowflakeIdGenerator(2);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(ids.add(a.nextId()));
+            assertTrue(ids.add(b.nextId()));
+        }
+    }
+
+    @Test
+    void sequenceOverflowAdvancesTime() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        // many times the sequences of one millisecond
+        int count = (int) (SnowflakeIdGenerator.SEQUENCE_MASK + 1) * 16;
+
+        long start = System.currentTimeMillis();
+        long prev = generator.nextId();
+        for (int i = 1; i < count; i++) {
+            long id = generator.nextId();
+            assertTrue(id > prev, "id " + i + " not increasing");
+            assertEquals(7, node(id));
+            prev = id;
+        }
+
+        // the time runs ahead of the clock by
+        // at most the overflowed milliseconds
+        long time = SnowflakeIdGenerator.getTime(prev);
+        assertTrue(time >= start);
+        assertTrue(time <= System.currentTimeMillis() + 16, "time " + time + " too far ahead");
+    }
+
+    @Test
+    void concurrentIdsUniqueAndIncreasing() throws InterruptedException {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3);
+        final int threadCount = 8;
+        final int perThread   = 50000;
+
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<AssertionError> errors = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    long prev = Long.MIN_VALUE;
+                    for (int i = 0; i < perThread; i++) {
+                        long id = generator.nextId();
+                        // increasing as seen by each thread
+                        assertTrue(id > prev, "id not increasing");
+                        assertTrue(ids.add(id), "duplicate id " + id);
+                        prev = id;
+                    }
+                } catch (AssertionError e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                } catch (InterruptedException ignored) { }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+        if (!errors.isEmpty())
+            throw errors.get(0);
+        assertEquals(threadCount * perThread, ids.size());
+    }
+
+}
@@ -0,0 +1,92 @@
+package net.orbyfied.hscsms.db.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks finding documents by indexed fields, also
+ * when the index is created while documents are
+ * being updated concurrently.
+ */
+public class InMemoryCollectionTest {
+
+    @Test
+    void findByIndexedField() {
+        InMemoryCollection collection = new InMemoryCollection("test", "id").index("name");
+        collection.update(1, Map.of("name", "a"), true);
+        collection.update(2, Map.of("name", "b"), true);
+
+        assertEquals(1, collection.findFirst(Map.of("name", "a")).get("id"));
+        assertNull(collection.findFirst(Map.of("name", "c")));
+
+        // renamed and removed documents leave the index
+        collection.update(1, Map.of("name", "c"), false);
+        assertNull(collection.findFirst(Map.of("name", "a")));
+        assertEquals(1, collection.findFirst(Map.of("name", "c")).get("id"));
+        collection.remove(2);
+        assertNull(collection.findFirst(Map.of("name", "b")));
+    }
+
+    @Test
+    void indexPresentDocuments() {
+        InMemoryCollection collection = new InMemoryCollection("test", "id");
+        for (int i = 0; i < 100; i++)
+            collection.update(i, Map.of("name", "n" + i), true);
+        collection.index("name");
+        assertTrue(collection.isIndexed("name"));
+        for (int i = 0; i < 100; i++)
+            assertEquals(i, collection.findFirst(Map.of("name", "n" + i)).get("id"));
+    }
+
+    @Test
+    void indexWhileUpdating() throws InterruptedException {
+        InMemoryCollection collection = new InMemoryCollection("test", "id");
+        final int writerCount = 4;
+        final int perWriter   = 50000;
+        final int count       = writerCount * perWriter;
+        for (int i = 0; i < count; i++)
+            collection.update(i, Map.of("name", "a" + i), true);
+
+        // writers rename every other document and insert
+        // new ones while the index is being built
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < writerCount; w++) {
+            final int base = w * perWriter;
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ignored) { }
+                for (int i = base; i < base + perWriter; i++) {
+                    if (i % 2 == 0)
+                        collection.update(i, Map.of("name", "b" + i), false);
+                    collection.update(count + i, Map.of("name", "a" + (count + i)), true);
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+
+        start.countDown();
+        collection.index("name");
+        for (Thread writer : writers)
+            writer.join();
+
+        // every document is found by its current name only
+        for (int i = 0; i < count * 2; i++) {
+            String name = (i < count && i % 2 == 0 ? "b" : "a") + i;
+            Map<String, Object> doc = collection.findFirst(Map.of("name", name));
+            assertNotNull(doc, "document " + i + " not found by " + name);
+            assertEquals(i, doc.get("id"));
+            if (i < count && i % 2 == 0)
+                assertNull(collection.findFirst(Map.of("name", "a" + i)), "document " + i + " found by old name");
+        }
+    }
+
+}
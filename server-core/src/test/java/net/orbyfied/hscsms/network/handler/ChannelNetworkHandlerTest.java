@@ -0,0 +1,175 @@
+package net.orbyfied.hscsms.network.handler;
+
+import net.orbyfied.hscsms.common.protocol.handshake.PacketUnboundHandshakeOk;
+import net.orbyfied.hscsms.network.NetworkManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChannelNetworkHandlerTest {
+
+    NetworkManager manager;
+    // a single loop, so all connections share it
+    SelectorLoopGroup loopGroup;
+    ExecutorService executor;
+    ServerSocketChannel serverChannel;
+
+    // the opened handlers
+    final List<SocketNetworkHandler> handlers = new ArrayList<>();
+
+    @BeforeEach
+    void setup() throws IOException {
+        manager = new NetworkManager();
+        manager.compilePacketClass(PacketUnboundHandshakeOk.class);
+
+        executor  = Executors.newFixedThreadPool(4);
+        loopGroup = new SelectorLoopGroup("TestLoop", 1)
+                .withHandlerExecutor(executor)
+                .start();
+        serverChannel = ServerSocketChannel.open()
+                .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        for (SocketNetworkHandler handler : handlers)
+            handler.fatalClose();
+        serverChannel.close();
+        loopGroup.shutdown();
+        executor.shutdownNow();
+    }
+
+    // connects a client and accepts it, returning
+    // the client and the unstarted server handler
+    SocketNetworkHandler[] connect() throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), serverChannel.socket().getLocalPort());
+        SocketNetworkHandler client = new SocketNetworkHandler(manager, null).connect(socket);
+        ChannelNetworkHandler server = new ChannelNetworkHandler(manager, null, loopGroup)
+                .connect(serverChannel.accept());
+        handlers.add(client);
+        handlers.add(server);
+        return new SocketNetworkHandler[] { client, server };
+    }
+
+    @Test
+    void blockingHandlerDoesNotStallLoop() throws Exception {
+        CountDownLatch blocked  = new CountDownLatch(1);
+        CountDownLatch release  = new CountDownLatch(1);
+        CountDownLatch received = new CountDownLatch(1);
+
+        // a handler blocking until released
+        SocketNetworkHandler[] a = connect();
+        a[1].node().childForType(PacketUnboundHandshakeOk.TYPE)
+                .<PacketUnboundHandshakeOk>withHandler((handler, node, packet) -> {
+                    blocked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new HandlerNode.Result(ChainAction.CONTINUE);
+                });
+        a[1].start();
+
+        // a handler on the same loop
+        SocketNetworkHandler[] b = connect();
+        b[1].node().childForType(PacketUnboundHandshakeOk.TYPE)
+                .<PacketUnboundHandshakeOk>withHandler((handler, node, packet) -> {
+                    received.countDown();
+                    return new HandlerNode.Result(ChainAction.CONTINUE);
+                });
+        b[1].start();
+
+        a[0].sendSyncRaw(new PacketUnboundHandshakeOk("a"));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        b[0].sendSyncRaw(new PacketUnboundHandshakeOk("b"));
+        assertTrue(received.await(5, TimeUnit.SECONDS), "packet not handled while another handler blocks");
+        release.countDown();
+    }
+
+    @Test
+    void packetsHandledInOrder() throws Exception {
+        int count = 2000;
+        List<String> messages = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(count);
+
+        SocketNetworkHandler[] c = connect();
+        c[1].node().childForType(PacketUnboundHandshakeOk.TYPE)
+                .<PacketUnboundHandshakeOk>withHandler((handler, node, packet) -> {
+                    messages.add(packet.message);
+                    done.countDown();
+                    return new HandlerNode.Result(ChainAction.CONTINUE);
+                });
+        c[1].start();
+
+        for (int i = 0; i < count; i++)
+            c[0].sendSyncRaw(new PacketUnboundHandshakeOk(Integer.toString(i)));
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        for (int i = 0; i < count; i++)
+            assertEquals(Integer.toString(i), messages.get(i));
+    }
+
+    @Test
+    void announcedLengthNotAllocated() throws Exception {
+        SocketNetworkHandler[] c = connect();
+        ChannelNetworkHandler server = (ChannelNetworkHandler) c[1];
+        server.start();
+
+        // announce the largest frame but send little of it
+        DataOutputStream out = new DataOutputStream(c[0].getSocket().getOutputStream());
+        out.writeByte(0);
+        out.writeInt(PacketUnboundHandshakeOk.TYPE.identifier().hashCode());
+        out.writeInt(SocketNetworkHandler.MAX_FRAME_SIZE);
+        out.write(new byte[ChannelNetworkHandler.INITIAL_BUFFER_SIZE * 3]);
+        out.flush();
+
+        // the buffer only grew with the received bytes
+        Thread.sleep(200);
+        assertTrue(server.readBuffer.capacity() <= ChannelNetworkHandler.INITIAL_BUFFER_SIZE * 4,
+                "read buffer grew to " + server.readBuffer.capacity());
+    }
+
+    @Test
+    void largeFrameReceived() throws Exception {
+        // a message larger than the retained buffer
+        String large = "x".repeat(ChannelNetworkHandler.MAX_RETAINED_BUFFER_SIZE - 1);
+        List<String> messages = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+
+        SocketNetworkHandler[] c = connect();
+        ChannelNetworkHandler server = (ChannelNetworkHandler) c[1];
+        server.node().childForType(PacketUnboundHandshakeOk.TYPE)
+                .<PacketUnboundHandshakeOk>withHandler((handler, node, packet) -> {
+                    messages.add(packet.message);
+                    done.countDown();
+                    return new HandlerNode.Result(ChainAction.CONTINUE);
+                });
+        server.start();
+
+        c[0].sendSyncRaw(new PacketUnboundHandshakeOk(large));
+        c[0].sendSyncRaw(new PacketUnboundHandshakeOk("small"));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(large, "small"), messages);
+
+        // the grown buffer is dropped once drained
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.readBuffer.capacity() > ChannelNetworkHandler.MAX_RETAINED_BUFFER_SIZE
+                && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertEquals(ChannelNetworkHandler.INITIAL_BUFFER_SIZE, server.readBuffer.capacity());
+    }
+
+}
@@ -0,0 +1,99 @@
+package net.orbyfied.hscsms.network.handler;
+
+import net.orbyfied.hscsms.common.protocol.PacketServerboundDisconnect;
+import net.orbyfied.hscsms.common.protocol.handshake.PacketUnboundHandshakeOk;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that packets are dispatched once to every
+ * matching child of a node, in order of registration.
+ */
+public class HandlerNodeTest {
+
+    // the handled calls, in order
+    final List<String> calls = new ArrayList<>();
+
+    // records the call and continues
+    HandlerNode.Handler<PacketUnboundHandshakeOk> record(String name) {
+        return (handler, node, packet) -> {
+            calls.add(name);
+            return new HandlerNode.Result(ChainAction.CONTINUE);
+        };
+    }
+
+    @Test
+    void typedChildHandledOnce() {
+        HandlerNode root = new HandlerNode(null);
+        root.childForType(PacketUnboundHandshakeOk.TYPE).withHandler(record("typed"));
+        root.childWhen((handler, node, packet) -> true).withHandler(record("predicate"));
+
+        root.handle(null, new PacketUnboundHandshakeOk("a"));
+        assertEquals(List.of("typed", "predicate"), calls);
+    }
+
+    @Test
+    void typedChildSkipsOtherTypes() {
+        HandlerNode root = new HandlerNode(null);
+        root.childForType(PacketUnboundHandshakeOk.TYPE).withHandler(record("typed"));
+
+        root.handle(null, new PacketServerboundDisconnect());
+        assertEquals(List.of(), calls);
+    }
+
+    @Test
+    void sameTypeRegisteredTwiceHandlesBoth() {
+        HandlerNode root = new HandlerNode(null);
+        root.childForType(PacketUnboundHandshakeOk.TYPE).withHandler(record("first"));
+        HandlerNode second = root.childForType(PacketUnboundHandshakeOk.TYPE).withHandler(record("second"));
+
+        root.handle(null, new PacketUnboundHandshakeOk("a"));
+        assertEquals(List.of("first", "second"), calls);
+
+        // removing one keeps the other
+        second.remove();
+        calls.clear();
+        root.handle(null, new PacketUnboundHandshakeOk("b"));
+        assertEquals(List.of("first"), calls);
+    }
+
+    @Test
+    void childRemovedWhileHandling() {
+        HandlerNode root = new HandlerNode(null);
+        root.childForType(PacketUnboundHandshakeOk.TYPE)
+                .<PacketUnboundHandshakeOk>withHandler((handler, node, packet) -> {
+                    calls.add("once");
+                    return new HandlerNode.Result(ChainAction.CONTINUE).nodeAction(NodeAction.REMOVE);
+                });
+        root.childForType(PacketUnboundHandshakeOk.TYPE).withHandler(record("always"));
+        root.childWhen((handler, node, packet) -> true)
+                .<PacketUnboundHandshakeOk>withHandler((handler, node, packet) -> {
+                    calls.add("predicate once");
+                    return new HandlerNode.Result(ChainAction.CONTINUE).nodeAction(NodeAction.REMOVE);
+                });
+
+        root.handle(null, new PacketUnboundHandshakeOk("a"));
+        root.handle(null, new PacketUnboundHandshakeOk("b"));
+        assertEquals(List.of("once", "always", "predicate once", "always"), calls);
+    }
+
+    @Test
+    void haltStopsDispatch() {
+        HandlerNode root = new HandlerNode(null);
+        root.childForType(PacketUnboundHandshakeOk.TYPE)
+                .<PacketUnboundHandshakeOk>withHandler((handler, node, packet) -> {
+                    calls.add("halt");
+                    return new HandlerNode.Result(ChainAction.HALT);
+                });
+        root.childForType(PacketUnboundHandshakeOk.TYPE).withHandler(record("typed"));
+        root.childWhen((handler, node, packet) -> true).withHandler(record("predicate"));
+
+        assertEquals(ChainAction.HALT, root.handle(null, new PacketUnboundHandshakeOk("a")).chain());
+        assertEquals(List.of("halt"), calls);
+    }
+
+}
@@ -0,0 +1,68 @@
+package net.orbyfied.hscsms.network.handler;
+
+import net.orbyfied.hscsms.util.data.ByteBufferPool;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks reading frame payloads from a stream
+ * which delivers the bytes in small chunks.
+ */
+public class SocketNetworkHandlerTest {
+
+    // a stream of the data, delivering
+    // at most the chunk size per read
+    static DataInputStream chunked(byte[] data, int chunk) {
+        return new DataInputStream(new FilterInputStream(new ByteArrayInputStream(data)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, chunk));
+            }
+        });
+    }
+
+    @Test
+    void payloadReadAcrossChunks() throws IOException {
+        byte[] data = new byte[ByteBufferPool.HEAP.bufferSize() * 5 + 123];
+        for (int i = 0; i < data.length; i++)
+            data[i] = (byte) i;
+
+        ByteBuffer payload = SocketNetworkHandler.readPayload(chunked(data, 1000), data.length);
+        assertEquals(0, payload.position());
+        assertEquals(data.length, payload.remaining());
+        for (int i = 0; i < data.length; i++)
+            assertEquals(data[i], payload.get(i), "byte " + i);
+        ByteBufferPool.HEAP.release(payload);
+    }
+
+    @Test
+    void smallPayloadUsesPooledBuffer() throws IOException {
+        ByteBuffer payload = SocketNetworkHandler.readPayload(chunked(new byte[10], 3), 10);
+        assertEquals(ByteBufferPool.HEAP.bufferSize(), payload.capacity());
+        assertEquals(10, payload.remaining());
+        ByteBufferPool.HEAP.release(payload);
+
+        assertEquals(0, SocketNetworkHandler.readPayload(chunked(new byte[0], 1), 0).remaining());
+    }
+
+    @Test
+    void announcedLengthNotAllocated() {
+        // announces the largest frame but ends early, the
+        // buffer must only have grown with the read bytes
+        byte[] data = new byte[ByteBufferPool.HEAP.bufferSize() * 2];
+        long before = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+        assertThrows(EOFException.class, () ->
+                SocketNetworkHandler.readPayload(chunked(data, 4096), SocketNetworkHandler.MAX_FRAME_SIZE));
+        long allocated = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory() - before;
+        assertTrue(allocated < SocketNetworkHandler.MAX_FRAME_SIZE / 2, "allocated " + allocated + " bytes");
+    }
+
+}
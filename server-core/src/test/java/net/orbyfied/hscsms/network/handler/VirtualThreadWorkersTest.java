@@ -0,0 +1,230 @@
+package net.orbyfied.hscsms.network.handler;
+
+import net.orbyfied.hscsms.common.protocol.handshake.PacketUnboundHandshakeOk;
+import net.orbyfied.hscsms.network.NetworkManager;
+import net.orbyfied.hscsms.util.worker.VirtualThreads;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs client and server socket workers against a loopback
+ * server, every client sending packets which are echoed back,
+ * on platform or virtual threads. The soak test runs many
+ * connections in both modes and reports the threads and
+ * memory used by them. Virtual threads fall back to
+ * platform threads on runtimes without them.
+ */
+public class VirtualThreadWorkersTest {
+
+    // the amount of connections of the soak test
+    static final int SOAK_CONNECTIONS = Integer.getInteger("hscsms.soak.connections", 1000);
+    // the packets sent by each client
+    static final int PACKETS = 20;
+
+    /**
+     * The threads and memory used by the
+     * connected workers of one mode, relative
+     * to before they were connected.
+     */
+    record Report(String mode,
+                  int connections,
+                  int threads,
+                  int peakThreads,
+                  long rssKb,
+                  long heapKb) {
+        @Override
+        public String toString() {
+            return String.format("%-9s connections %6d  threads %+6d  peak threads %+6d  rss %+9d kB  heap %+9d kB",
+                    mode, connections, threads, peakThreads, rssKb, heapKb);
+        }
+    }
+
+    NetworkManager manager;
+    ServerSocket serverSocket;
+
+    // the opened handlers
+    final List<SocketNetworkHandler> handlers = new ArrayList<>();
+
+    @BeforeEach
+    void setup() throws IOException {
+        manager = new NetworkManager();
+        manager.compilePacketClass(PacketUnboundHandshakeOk.class);
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        for (SocketNetworkHandler handler : handlers)
+            handler.fatalClose();
+        if (serverSocket != null)
+            serverSocket.close();
+    }
+
+    // checks if the thread is virtual, only
+    // possible on runtimes supporting them
+    static boolean isVirtual(Thread thread) throws Exception {
+        return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+
+    // get the resident set size in kB,
+    // or -1 if not available on this system
+    static long rssKb() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status")))
+                if (line.startsWith("VmRSS:"))
+                    return Long.parseLong(line.replaceAll("[^0-9]", ""));
+        } catch (Exception ignored) { }
+        return -1;
+    }
+
+    // get the used heap in kB after collecting garbage
+    static long heapKb(MemoryMXBean memory) {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed() / 1024;
+    }
+
+    // connects the clients, exchanges the packets and
+    // closes the clients, checking every packet was echoed
+    // and every worker stopped, measuring the resources
+    // used while all clients are connected
+    Report run(boolean virtual, int connections) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory  = ManagementFactory.getMemoryMXBean();
+        String mode = !virtual ? "platform" : VirtualThreads.isSupported() ? "virtual" : "fallback";
+
+        serverSocket = new ServerSocket(0, connections, InetAddress.getLoopbackAddress());
+        CountDownLatch echoed       = new CountDownLatch(connections * PACKETS);
+        CountDownLatch disconnected = new CountDownLatch(connections * 2);
+        AtomicInteger errors = new AtomicInteger();
+        // the threads the workers handled packets on
+        Set<Thread> workerThreads = ConcurrentHashMap.newKeySet();
+
+        // measure before connecting
+        long heapBefore   = heapKb(memory);
+        long rssBefore    = rssKb();
+        int threadsBefore = threads.getThreadCount();
+        threads.resetPeakThreadCount();
+
+        List<SocketNetworkHandler> clients = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            Socket socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+            SocketNetworkHandler client = new SocketNetworkHandler(manager, null)
+                    .virtualThreads(virtual)
+                    .connect(socket);
+            SocketNetworkHandler server = new SocketNetworkHandler(manager, null)
+                    .virtualThreads(virtual)
+                    .connect(serverSocket.accept());
+            handlers.add(client);
+            handlers.add(server);
+            clients.add(client);
+
+            // echo packets back to the client
+            server.node().childForType(PacketUnboundHandshakeOk.TYPE)
+                    .<PacketUnboundHandshakeOk>withHandler((handler, node, packet) -> {
+                        workerThreads.add(Thread.currentThread());
+                        server.sendSyncRaw(new PacketUnboundHandshakeOk(packet.message));
+                        return new HandlerNode.Result(ChainAction.CONTINUE);
+                    });
+            client.node().childForType(PacketUnboundHandshakeOk.TYPE)
+                    .<PacketUnboundHandshakeOk>withHandler((handler, node, packet) -> {
+                        workerThreads.add(Thread.currentThread());
+                        echoed.countDown();
+                        return new HandlerNode.Result(ChainAction.CONTINUE);
+                    });
+
+            // count disconnects, errors are expected
+            // on the clients as their sockets are closed
+            server.withDisconnectHandler(t -> {
+                if (t != null && !(t instanceof IOException))
+                    errors.incrementAndGet();
+                disconnected.countDown();
+            });
+            client.withDisconnectHandler(t -> disconnected.countDown());
+
+            server.start();
+            client.start();
+        }
+
+        // send packets from all clients at once
+        for (int i = 0; i < PACKETS; i++)
+            for (SocketNetworkHandler client : clients)
+                client.sendAsyncRaw(new PacketUnboundHandshakeOk("packet " + i));
+        assertTrue(echoed.await(60, TimeUnit.SECONDS), echoed.getCount() + " packets not echoed");
+
+        // measure while all clients are connected, only
+        // platform threads are counted by the thread bean
+        Report report = new Report(mode, connections,
+                threads.getThreadCount() - threadsBefore,
+                threads.getPeakThreadCount() - threadsBefore,
+                rssBefore == -1 ? -1 : rssKb() - rssBefore,
+                heapKb(memory) - heapBefore);
+
+        // every worker ran on its own thread
+        assertEquals(connections * 2, workerThreads.size());
+        if (virtual && VirtualThreads.isSupported())
+            for (Thread thread : workerThreads)
+                assertTrue(isVirtual(thread), thread + " is not virtual");
+
+        // close the clients, stopping all workers
+        for (SocketNetworkHandler client : clients)
+            client.disconnect().fatalClose();
+        assertTrue(disconnected.await(60, TimeUnit.SECONDS), disconnected.getCount() + " workers not stopped");
+        for (Thread thread : workerThreads) {
+            thread.join(5000);
+            assertFalse(thread.isAlive(), thread + " still alive");
+        }
+        assertEquals(0, errors.get());
+
+        // close the server handlers and socket
+        for (SocketNetworkHandler handler : handlers)
+            handler.fatalClose();
+        handlers.clear();
+        serverSocket.close();
+        serverSocket = null;
+        return report;
+    }
+
+    @Test
+    void workersExchangePacketsAndShutDown() throws Exception {
+        run(false, 20);
+        run(true, 20);
+    }
+
+    @Test
+    @Tag("soak")
+    void soakConnections() throws Exception {
+        // virtual first, so the memory retained
+        // after the platform threads doesn't hide it
+        Report virtual  = run(true, SOAK_CONNECTIONS);
+        Report platform = run(false, SOAK_CONNECTIONS);
+        System.out.println(virtual);
+        System.out.println(platform);
+
+        // a platform thread per worker, while virtual
+        // workers share the carrier threads
+        assertTrue(platform.threads() >= SOAK_CONNECTIONS * 2, platform.toString());
+        if (VirtualThreads.isSupported())
+            assertTrue(virtual.threads() < SOAK_CONNECTIONS, virtual.toString());
+    }
+
+}
@@ -0,0 +1,105 @@
+package net.orbyfied.hscsms.security;
+
+import net.orbyfied.hscsms.common.ProtocolSpec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingEncryptionProfileTest {
+
+    // the client and server profiles, sharing a key
+    StreamingEncryptionProfile client;
+    StreamingEncryptionProfile server;
+
+    @BeforeEach
+    void setup() {
+        client = (StreamingEncryptionProfile) ProtocolSpec.newSymmetricEncryptionProfile(
+                ProtocolSpec.PROTOCOL_V2, StreamingEncryptionProfile.Side.CLIENT).generateKeys();
+        server = (StreamingEncryptionProfile) ProtocolSpec.newSymmetricEncryptionProfile(
+                ProtocolSpec.PROTOCOL_V2, StreamingEncryptionProfile.Side.SERVER);
+        server.withKey("secret", client.getSecretKey());
+    }
+
+    // encrypts the message into a new buffer
+    static ByteBuffer encrypt(StreamingEncryptionProfile profile, String message) throws GeneralSecurityException {
+        byte[] plain = message.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buf = ByteBuffer.allocate(StreamingEncryptionProfile.NONCE_SIZE + plain.length
+                + StreamingEncryptionProfile.TAG_SIZE);
+        buf.put(StreamingEncryptionProfile.NONCE_SIZE, plain);
+        int len = profile.encryptInPlace(buf, StreamingEncryptionProfile.NONCE_SIZE, plain.length);
+        return buf.limit(len);
+    }
+
+    // decrypts a copy of the message
+    static String decrypt(StreamingEncryptionProfile profile, ByteBuffer message) throws GeneralSecurityException {
+        ByteBuffer copy = ByteBuffer.allocate(message.remaining()).put(message.duplicate()).flip();
+        ByteBuffer plain = profile.decryptInPlace(copy);
+        byte[] bytes = new byte[plain.remaining()];
+        plain.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void roundTrip() throws GeneralSecurityException {
+        for (int i = 0; i < 3; i++) {
+            assertEquals("to server " + i, decrypt(server, encrypt(client, "to server " + i)));
+            assertEquals("to client " + i, decrypt(client, encrypt(server, "to client " + i)));
+        }
+
+        assertEquals("bytes", new String(server.decrypt(client.encrypt("bytes".getBytes(StandardCharsets.UTF_8))),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void rejectsTamperedMessage() throws GeneralSecurityException {
+        ByteBuffer message = encrypt(client, "hello");
+
+        // flip a byte of the ciphertext
+        ByteBuffer tampered = ByteBuffer.allocate(message.remaining()).put(message.duplicate()).flip();
+        int i = StreamingEncryptionProfile.NONCE_SIZE + 1;
+        tampered.put(i, (byte) (tampered.get(i) ^ 1));
+        assertThrows(GeneralSecurityException.class, () -> decrypt(server, tampered));
+
+        // the original is still accepted
+        assertEquals("hello", decrypt(server, message));
+    }
+
+    @Test
+    void rejectsReplayedMessage() throws GeneralSecurityException {
+        ByteBuffer first  = encrypt(client, "first");
+        ByteBuffer second = encrypt(client, "second");
+
+        assertEquals("first", decrypt(server, first));
+        assertThrows(GeneralSecurityException.class, () -> decrypt(server, first));
+
+        assertEquals("second", decrypt(server, second));
+        assertThrows(GeneralSecurityException.class, () -> decrypt(server, first));
+        assertThrows(GeneralSecurityException.class, () -> decrypt(server, second));
+    }
+
+    @Test
+    void rejectsReflectedMessage() throws GeneralSecurityException {
+        // a message sent back to its own sender
+        ByteBuffer message = encrypt(client, "hello");
+        assertThrows(GeneralSecurityException.class, () -> decrypt(client, message));
+    }
+
+    @Test
+    void directionsUseDistinctNonces() throws GeneralSecurityException {
+        ByteBuffer fromClient = encrypt(client, "hello");
+        ByteBuffer fromServer = encrypt(server, "hello");
+
+        byte[] a = new byte[StreamingEncryptionProfile.NONCE_SIZE];
+        byte[] b = new byte[StreamingEncryptionProfile.NONCE_SIZE];
+        fromClient.get(0, a);
+        fromServer.get(0, b);
+        assertFalse(Arrays.equals(a, b));
+    }
+
+}
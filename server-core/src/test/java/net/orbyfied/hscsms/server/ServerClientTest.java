@@ -0,0 +1,77 @@
+package net.orbyfied.hscsms.server;
+
+import net.orbyfied.hscsms.core.resource.ServerResourceManager;
+import net.orbyfied.hscsms.core.resource.impl.ResourceGCService;
+import net.orbyfied.hscsms.core.resource.impl.ResourceWriteBehindService;
+import net.orbyfied.hscsms.server.resource.User;
+import net.orbyfied.hscsms.util.Values;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks creating users and logging in as them, backed
+ * by an in-memory database, with a client connected
+ * over a loopback socket.
+ */
+public class ServerClientTest {
+
+    Server server;
+    ServerResourceManager manager;
+
+    ServerSocket serverSocket;
+    Socket socket;
+    ServerClient client;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = new Server();
+        server.configuration.put("database", new Values().setRaw("brand", "memory"));
+        server.setup();
+
+        manager = server.resourceManager();
+        manager.registerType(User.TYPE);
+
+        // connect a client, which is not started
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        socket = new Socket(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+        client = new ServerClient(server, serverSocket.accept());
+    }
+
+    @AfterEach
+    void teardown() throws IOException {
+        client.networkHandler.fatalClose();
+        socket.close();
+        serverSocket.close();
+        manager.withoutService(ResourceGCService.class);
+        manager.withoutService(ResourceWriteBehindService.class);
+    }
+
+    @Test
+    void loginAfterCreatingUser() {
+        // the failed login remembers the username as absent
+        assertEquals("unknown_user", client.authenticateAndLogin("carol", "password").t());
+
+        ServerClient.UserCreateResult created = client.createUser("carol", "password");
+        assertTrue(created.success(), String.valueOf(created.t()));
+
+        // logged in before the user is saved
+        ServerClient.UserAuthenticationResult result = client.authenticateAndLogin("carol", "password");
+        assertTrue(result.success(), String.valueOf(result.t()));
+        assertEquals(created.uuid(), result.user().universalID());
+    }
+
+    @Test
+    void loginWithWrongPasswordFails() {
+        assertTrue(client.createUser("carol", "password").success());
+        assertEquals("invalid_password", client.authenticateAndLogin("carol", "wrong").t());
+    }
+
+}
@@ -0,0 +1,120 @@
+package net.orbyfied.hscsms.util.data;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the bucketing of the recorded durations
+ * and the percentiles computed from the buckets.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    void smallValuesExact() {
+        for (int i = 0; i < LatencyHistogram.SUB; i++) {
+            assertEquals(i, LatencyHistogram.bucketOf(i));
+            assertEquals(i, LatencyHistogram.highestOf(i));
+        }
+        // negative durations go in the first bucket
+        assertEquals(0, LatencyHistogram.bucketOf(-5));
+    }
+
+    @Test
+    void bucketsContainTheirValues() {
+        long[] values = { 8, 9, 15, 16, 17, 100, 1000, 123456789, Long.MAX_VALUE >>> 1, Long.MAX_VALUE };
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(bucket >= 0 && bucket < LatencyHistogram.BUCKETS, "bucket " + bucket + " of " + value);
+            long highest = LatencyHistogram.highestOf(bucket);
+            assertTrue(value <= highest, value + " above bucket highest " + highest);
+            // within the precision of a sub bucket
+            assertTrue(highest - value <= value / LatencyHistogram.SUB, value + " too far below " + highest);
+            // the next value past the highest is the next bucket
+            if (highest != Long.MAX_VALUE)
+                assertEquals(bucket + 1, LatencyHistogram.bucketOf(highest + 1));
+        }
+    }
+
+    @Test
+    void bucketsIncreasing() {
+        int prev = -1;
+        for (long value = 0; value < 1 << 20; value += 7) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(bucket >= prev, "bucket of " + value + " decreased");
+            prev = bucket;
+        }
+    }
+
+    @Test
+    void emptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0.0, histogram.getMean());
+        assertEquals(0, histogram.getPercentile(0.5));
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    void totalsAndMean() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10);
+        histogram.record(20);
+        histogram.record(60);
+        assertEquals(3, histogram.getCount());
+        assertEquals(90, histogram.getTotal());
+        assertEquals(30.0, histogram.getMean());
+        assertEquals(60, histogram.getMax());
+    }
+
+    @Test
+    void percentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1 to 1000 microseconds, once each
+        for (long i = 1; i <= 1000; i++)
+            histogram.record(i * 1000);
+
+        assertPercentile(histogram, 0.5, 500_000);
+        assertPercentile(histogram, 0.9, 900_000);
+        assertPercentile(histogram, 0.99, 990_000);
+        // never above the max
+        assertEquals(1_000_000, histogram.getPercentile(1));
+        // the lowest is at least the first bucket
+        assertPercentile(histogram, 0, 1000);
+    }
+
+    @Test
+    void percentilesOfSkewedDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 990; i++)
+            histogram.record(100);
+        for (int i = 0; i < 10; i++)
+            histogram.record(1_000_000);
+
+        assertPercentile(histogram, 0.5, 100);
+        assertPercentile(histogram, 0.99, 100);
+        assertPercentile(histogram, 0.995, 1_000_000);
+    }
+
+    @Test
+    void resetClears() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(0.99));
+        assertEquals(0, histogram.getMax());
+
+        histogram.record(5);
+        assertEquals(5, histogram.getPercentile(0.5));
+    }
+
+    // asserts the percentile is the expected value
+    // rounded up to the highest of its bucket
+    static void assertPercentile(LatencyHistogram histogram, double p, long expected) {
+        long value = histogram.getPercentile(p);
+        assertTrue(value >= expected && value - expected <= expected / LatencyHistogram.SUB,
+                "p" + p * 100 + " is " + value + ", expected about " + expected);
+    }
+
+}
@@ -0,0 +1,197 @@
+package net.orbyfied.hscsms.util.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the map against the expected entries, the
+ * reuse and rebuilding of removed slots, and readers
+ * running concurrently with a writer.
+ */
+public class LongPair2ObjectMapTest {
+
+    // the value stored for a key, so
+    // readers can check what they see
+    static String valueOf(long msb, long lsb) {
+        return msb + ":" + lsb;
+    }
+
+    @Test
+    void putGetRemove() {
+        LongPair2ObjectMap<String> map = new LongPair2ObjectMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1, 2));
+
+        assertNull(map.put(1, 2, "a"));
+        assertNull(map.put(2, 1, "b"));
+        assertEquals("a", map.get(1, 2));
+        assertEquals("b", map.get(2, 1));
+        assertEquals(2, map.size());
+
+        // replace and put if absent
+        assertEquals("a", map.put(1, 2, "c"));
+        assertEquals("c", map.putIfAbsent(1, 2, "d"));
+        assertEquals("c", map.get(1, 2));
+        assertEquals(2, map.size());
+
+        assertEquals("c", map.remove(1, 2));
+        assertNull(map.remove(1, 2));
+        assertNull(map.get(1, 2));
+        assertFalse(map.containsKey(1, 2));
+        assertEquals(1, map.size());
+
+        assertThrows(NullPointerException.class, () -> map.put(3, 3, null));
+    }
+
+    @Test
+    void uuidKeys() {
+        LongPair2ObjectMap<String> map = new LongPair2ObjectMap<>();
+        UUID key = UUID.randomUUID();
+        map.put(key, "a");
+        assertEquals("a", map.get(key.getMostSignificantBits(), key.getLeastSignificantBits()));
+        assertTrue(map.containsKey(key));
+
+        List<UUID> keys = new ArrayList<>();
+        map.forEach((k, v) -> keys.add(k));
+        assertEquals(List.of(key), keys);
+        assertEquals(List.of("a"), map.values());
+
+        assertEquals("a", map.remove(key));
+        assertFalse(map.containsKey(key));
+    }
+
+    @Test
+    void removeOnlyGivenValue() {
+        LongPair2ObjectMap<String> map = new LongPair2ObjectMap<>();
+        String value = new String("a");
+        map.put(1, 1, value);
+        assertFalse(map.remove(1, 1, new String("a")));
+        assertFalse(map.remove(1, 1, null));
+        assertTrue(map.remove(1, 1, value));
+        assertFalse(map.remove(1, 1, value));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void removedSlotReusedBySameKey() {
+        LongPair2ObjectMap<String> map = new LongPair2ObjectMap<>();
+        map.put(5, 6, "a");
+        LongPair2ObjectMap.Table table = map.table;
+        int used = map.used;
+
+        // the key takes its removed slot again
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("a", map.remove(5, 6));
+            assertNull(map.putIfAbsent(5, 6, "a"));
+        }
+        assertSame(table, map.table);
+        assertEquals(used, map.used);
+        assertEquals(1, map.size());
+        assertEquals("a", map.get(5, 6));
+    }
+
+    @Test
+    void rebuildUnderChurn() {
+        LongPair2ObjectMap<String> map = new LongPair2ObjectMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        // keep a few hundred live keys while many
+        // distinct keys are put and removed
+        List<Long> live = new ArrayList<>();
+        for (long k = 0; k < 200_000; k++) {
+            map.put(k, ~k, valueOf(k, ~k));
+            expected.put(k, valueOf(k, ~k));
+            live.add(k);
+            if (live.size() > 300) {
+                long removed = live.remove(random.nextInt(live.size()));
+                assertEquals(expected.remove(removed), map.remove(removed, ~removed));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, String> entry : expected.entrySet())
+            assertEquals(entry.getValue(), map.get(entry.getKey(), ~entry.getKey()));
+        assertEquals(expected.size(), map.values().size());
+
+        // removed slots were dropped by rebuilds,
+        // so the table didn't grow with the churn
+        assertTrue(map.table.values.length <= LongPair2ObjectMap.capacityFor(expected.size()) * 2,
+                "table grew to " + map.table.values.length);
+        assertTrue(map.used <= map.table.values.length >> 1);
+    }
+
+    @Test
+    void clearResets() {
+        LongPair2ObjectMap<String> map = new LongPair2ObjectMap<>();
+        for (long k = 0; k < 1000; k++)
+            map.put(k, k, "v");
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(1, 1));
+        assertEquals(LongPair2ObjectMap.MIN_CAPACITY, map.table.values.length);
+    }
+
+    @Test
+    void concurrentReaderAndWriter() throws InterruptedException {
+        LongPair2ObjectMap<String> map = new LongPair2ObjectMap<>();
+        // keys always present, with msb 0
+        final int stable = 256;
+        for (long k = 0; k < stable; k++)
+            map.put(0, k, valueOf(0, k));
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        // churns distinct keys with msb 1, growing
+        // and rebuilding the table many times
+        Thread writer = new Thread(() -> {
+            for (long k = 0; k < 300_000; k++) {
+                map.put(1, k, valueOf(1, k));
+                if (k >= 1000)
+                    map.remove(1, k - 1000);
+            }
+            done.set(true);
+        });
+
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            Thread reader = new Thread(() -> {
+                Random random = new Random();
+                while (!done.get() && failure.get() == null) {
+                    long k = random.nextInt(stable);
+                    String value = map.get(0, k);
+                    if (!valueOf(0, k).equals(value))
+                        failure.compareAndSet(null, "stable key " + k + " read " + value);
+
+                    // churned keys are absent or
+                    // map to their own value
+                    k = random.nextInt(300_000);
+                    value = map.get(1, k);
+                    if (value != null && !valueOf(1, k).equals(value))
+                        failure.compareAndSet(null, "key " + k + " read " + value);
+                }
+            });
+            readers.add(reader);
+            reader.start();
+        }
+
+        writer.start();
+        writer.join();
+        for (Thread reader : readers)
+            reader.join();
+        assertNull(failure.get(), failure.get());
+        assertEquals(stable + 1000, map.size());
+    }
+
+}